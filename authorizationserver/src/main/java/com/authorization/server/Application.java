@@ -6,6 +6,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
 import org.springframework.security.oauth2.core.oidc.OidcScopes;
@@ -20,6 +21,7 @@ import static java.util.UUID.randomUUID;
 @Slf4j
 @SpringBootApplication
 @EnableDiscoveryClient
+@EnableScheduling
 public class Application {
 	@Value("${ui.app.url}")
 	private String redirectUri;
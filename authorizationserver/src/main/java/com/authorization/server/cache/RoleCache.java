@@ -0,0 +1,50 @@
+package com.authorization.server.cache;
+import com.authorization.server.domain.Role;
+import com.authorization.server.exception.ApiException;
+import com.authorization.server.model.User;
+import com.authorization.server.repository.RoleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.nonNull;
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoleCache {
+    private final RoleRepository roleRepository;
+    private volatile Map<Long, Role> roles = Map.of();
+
+    @Scheduled(fixedDelayString = "${role.cache.refresh-interval:PT10M}")
+    public void refresh() {
+        try {
+            log.info("Loaded {} roles", load().size());
+        } catch (Exception exception) {
+            log.error("Unable to refresh roles: {}", exception.getMessage());
+        }
+    }
+
+    public User resolve(User user) {
+        var role = getRole(user.getRoleId());
+        user.setRole(role.name());
+        user.setAuthorities(role.authority());
+        return user;
+    }
+
+    public Role getRole(Long roleId) {
+        var role = roles.get(roleId);
+        if(nonNull(role)) { return role; }
+        return Optional.ofNullable(load().get(roleId)).orElseThrow(() -> new ApiException("Role not found. Please try again."));
+    }
+
+    private synchronized Map<Long, Role> load() {
+        roles = roleRepository.getRoles().stream().collect(Collectors.toUnmodifiableMap(Role::roleId, Function.identity()));
+        return roles;
+    }
+}
@@ -0,0 +1,2 @@
+package com.authorization.server.domain;
+public record Role(Long roleId, String name, String authority) {}
@@ -19,12 +19,12 @@ public class User {
     private String phone;
     private String bio;
     private String imageUrl;
-    private String qrCodeImageUri;
     private String qrCodeSecret;
     private String lastLogin;
     private int loginAttempts;
     private String createdAt;
     private String updatedAt;
+    private Long roleId;
     private String role;
     private String authorities;
     private boolean mfa;
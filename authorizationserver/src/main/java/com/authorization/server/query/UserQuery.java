@@ -2,11 +2,11 @@ package com.authorization.server.query;
 public class UserQuery {
     public static final String SELECT_USER_BY_USER_UUID_QUERY =
                                """
-                               SELECT r.name AS role, r.authority AS authorities, u.qr_code_image_uri, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address, c.password, c.updated_at + INTERVAL '90 day' > NOW() AS credentials_non_expired FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id JOIN credentials c ON c.user_id = u.user_id WHERE u.user_uuid = :userUuid
+                               SELECT ur.role_id, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address, c.password, c.updated_at + INTERVAL '90 day' > NOW() AS credentials_non_expired FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN credentials c ON c.user_id = u.user_id WHERE u.user_uuid = :userUuid
                                """;
     public static final String SELECT_USER_BY_EMAIL_QUERY =
                                """
-                               SELECT r.name AS role, r.authority AS authorities, u.qr_code_image_uri, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address, c.password, c.updated_at + INTERVAL '90 day' > NOW() AS credentials_non_expired FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id JOIN credentials c ON c.user_id = u.user_id WHERE u.email = :email
+                               SELECT ur.role_id, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address, c.password, c.updated_at + INTERVAL '90 day' > NOW() AS credentials_non_expired FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN credentials c ON c.user_id = u.user_id WHERE u.email = :email
                                """;
     public static final String RESET_LOGIN_ATTEMPTS_QUERY =
                                """
@@ -22,6 +22,10 @@ public class UserQuery {
                                """;
     public static final String INSERT_NEW_DEVICE_QUERY =
                                """
-                               INSERT INTO devices (user_id, device, client, ip_address) VALUES (:userId, :device, :client, :ipAddress)
+                               WITH login AS (
+                                   INSERT INTO devices (user_id, device, client, ip_address) VALUES (:userId, :device, :client, :ipAddress) RETURNING user_id, device, client, ip_address, created_at
+                               )
+                               INSERT INTO device_summaries (user_id, device, client, ip_address, first_seen, last_seen) SELECT user_id, device, client, ip_address, created_at, created_at FROM login
+                               ON CONFLICT ON CONSTRAINT uq_device_summaries_user_id_device_client DO UPDATE SET ip_address = EXCLUDED.ip_address, last_seen = EXCLUDED.last_seen, login_count = device_summaries.login_count + 1
                                """;
 }
@@ -0,0 +1,7 @@
+package com.authorization.server.repository;
+import com.authorization.server.domain.Role;
+
+import java.util.List;
+public interface RoleRepository {
+    List<Role> getRoles();
+}
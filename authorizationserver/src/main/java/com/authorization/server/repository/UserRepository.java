@@ -1,6 +1,10 @@
 package com.authorization.server.repository;
 import com.authorization.server.model.User;
+
+import java.util.Optional;
 public interface UserRepository {
+    Optional<User> findUserByUuid(String userUuid);
+    Optional<User> findUserByEmail(String email);
     User getUserByUuid(String userUuid);
     User getUserByEmail(String email);
     void resetLoginAttempts(String userUuid);
@@ -0,0 +1,28 @@
+package com.authorization.server.repository.implementation;
+import com.authorization.server.domain.Role;
+import com.authorization.server.exception.ApiException;
+import com.authorization.server.repository.RoleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+import static com.authorization.server.query.RoleQuery.SELECT_ROLES_QUERY;
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoleRepositoryImpl implements RoleRepository {
+    private final JdbcClient jdbc;
+
+    @Override
+    public List<Role> getRoles() {
+        try {
+            return jdbc.sql(SELECT_ROLES_QUERY).query((resultSet, rowNum) -> new Role(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3))).list();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
+import java.util.Optional;
 
 import static com.authorization.server.query.UserQuery.*;
 @Slf4j
@@ -18,31 +19,35 @@ public class UserRepositoryImpl implements UserRepository {
     private final JdbcClient jdbc;
 
     @Override
-    public User getUserByUuid(String userUuid) {
+    public Optional<User> findUserByUuid(String userUuid) {
         try {
-            return jdbc.sql(SELECT_USER_BY_USER_UUID_QUERY).param("userUuid", userUuid).query(User.class).single();
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException(String.format("No user found by UUID %s", userUuid));
+            return jdbc.sql(SELECT_USER_BY_USER_UUID_QUERY).param("userUuid", userUuid).query(User.class).optional();
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public User getUserByEmail(String email) {
+    public User getUserByUuid(String userUuid) {
+        return findUserByUuid(userUuid).orElseThrow(() -> new ApiException(String.format("No user found by UUID %s", userUuid)));
+    }
+
+    @Override
+    public Optional<User> findUserByEmail(String email) {
         try {
-            return jdbc.sql(SELECT_USER_BY_EMAIL_QUERY).param("email", email).query(User.class).single();
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException(String.format("No user found by email %s", email));
+            return jdbc.sql(SELECT_USER_BY_EMAIL_QUERY).param("email", email).query(User.class).optional();
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
+    @Override
+    public User getUserByEmail(String email) {
+        return findUserByEmail(email).orElseThrow(() -> new ApiException(String.format("No user found by email %s", email)));
+    }
+
     @Override
     public void resetLoginAttempts(String userUuid) {
         try {
@@ -52,7 +57,7 @@ public class UserRepositoryImpl implements UserRepository {
             throw new ApiException(String.format("No user found by UUID %s", userUuid));
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
@@ -65,7 +70,7 @@ public class UserRepositoryImpl implements UserRepository {
             throw new ApiException(String.format("No user found by email %s", email));
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
@@ -78,7 +83,7 @@ public class UserRepositoryImpl implements UserRepository {
             throw new ApiException(String.format("No user found user ID %s", userId));
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
@@ -91,7 +96,7 @@ public class UserRepositoryImpl implements UserRepository {
             throw new ApiException(String.format("No user found user ID %s", userId));
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 }
\ No newline at end of file
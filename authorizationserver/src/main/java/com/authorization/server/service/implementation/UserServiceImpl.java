@@ -1,4 +1,5 @@
 package com.authorization.server.service.implementation;
+import com.authorization.server.cache.RoleCache;
 import com.authorization.server.model.User;
 import com.authorization.server.repository.UserRepository;
 import com.authorization.server.service.UserService;
@@ -9,10 +10,11 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
+    private final RoleCache roleCache;
 
     @Override
     public User getUserByEmail(String email) {
-        return userRepository.getUserByEmail(email);
+        return roleCache.resolve(userRepository.getUserByEmail(email));
     }
 
     @Override
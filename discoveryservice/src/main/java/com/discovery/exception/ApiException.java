@@ -1,4 +1,6 @@
 package com.discovery.exception;
 public class ApiException extends RuntimeException {
-    public ApiException(String message) { super(message); }
+    public static final ApiException GENERIC_ERROR = new ApiException("An error occurred. Please try again.");
+
+    public ApiException(String message) { super(message, null, false, false); }
 }
\ No newline at end of file
@@ -19,7 +19,6 @@ public class User {
     private String phone;
     private String bio;
     private String imageUrl;
-    private String qrCodeImageUri;
     private String qrCodeSecret;
     private String lastLogin;
     private int loginAttempts;
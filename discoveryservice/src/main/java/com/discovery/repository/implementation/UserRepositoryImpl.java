@@ -24,7 +24,7 @@ public class UserRepositoryImpl implements UserRepository {
                 throw new ApiException(String.format("No user found by username %s", username));
             } catch (Exception exception) {
                 log.error(exception.getMessage());
-                throw new ApiException("An error occurred. Please try again.");
+                throw ApiException.GENERIC_ERROR;
             }
     }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+/*
+ * One-off migration for databases created before devices was partitioned.
+ * schema.sql only runs against an empty data directory, and re-running it on an existing database fails at PARTITION OF devices.
+ * psql -h <host> -p 5432 -d <database name> -U <user> -v ON_ERROR_STOP=1 -f migrate_devices.sql
+ */
+
+BEGIN;
+
+LOCK TABLE devices IN ACCESS EXCLUSIVE MODE;
+
+ALTER TABLE devices RENAME TO devices_unpartitioned;
+ALTER SEQUENCE devices_device_id_seq RENAME TO devices_unpartitioned_device_id_seq;
+DROP INDEX IF EXISTS idx_devices_user_id_created_at;
+
+CREATE TABLE IF NOT EXISTS devices (
+    device_id BIGSERIAL,
+    user_id BIGINT NOT NULL,
+    device VARCHAR(40) NOT NULL,
+    client VARCHAR(40) NOT NULL,
+    ip_address VARCHAR(100) NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_devices PRIMARY KEY (device_id, created_at),
+    CONSTRAINT fk_devices_user_id FOREIGN KEY (user_id) REFERENCES users (user_id) MATCH SIMPLE ON UPDATE CASCADE ON DELETE RESTRICT
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE IF NOT EXISTS devices_default PARTITION OF devices DEFAULT;
+
+CREATE TABLE IF NOT EXISTS device_summaries (
+    device_summary_id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    device VARCHAR(40) NOT NULL,
+    client VARCHAR(40) NOT NULL,
+    ip_address VARCHAR(100) NOT NULL,
+    login_count BIGINT NOT NULL DEFAULT 1,
+    first_seen TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_seen TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uq_device_summaries_user_id_device_client UNIQUE (user_id, device, client),
+    CONSTRAINT fk_device_summaries_user_id FOREIGN KEY (user_id) REFERENCES users (user_id) MATCH SIMPLE ON UPDATE CASCADE ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_device_summaries_user_id_last_seen ON device_summaries (user_id, last_seen DESC);
+
+DROP FUNCTION IF EXISTS maintain_device_partitions(INTEGER, INTEGER);
+
+CREATE OR REPLACE FUNCTION maintain_device_partitions (IN p_months_ahead INTEGER, IN p_retention_months INTEGER)
+    RETURNS TABLE(created INTEGER, dropped INTEGER, moved BIGINT, purged BIGINT)
+    LANGUAGE PLPGSQL
+    AS $$
+    DECLARE
+        v_month DATE;
+        v_next_month DATE;
+        v_cutoff DATE := (DATE_TRUNC('MONTH', CURRENT_DATE) - MAKE_INTERVAL(months => p_retention_months))::DATE;
+        v_partition VARCHAR;
+        v_rows BIGINT;
+        v_created INTEGER := 0;
+        v_dropped INTEGER := 0;
+        v_moved BIGINT := 0;
+        v_purged BIGINT := 0;
+    BEGIN
+        IF NOT PG_TRY_ADVISORY_XACT_LOCK(HASHTEXT('maintain_device_partitions')) THEN
+            RETURN QUERY SELECT v_created, v_dropped, v_moved, v_purged;
+            RETURN;
+        END IF;
+        FOR v_offset IN -p_retention_months..p_months_ahead LOOP
+            v_month := (DATE_TRUNC('MONTH', CURRENT_DATE) + MAKE_INTERVAL(months => v_offset))::DATE;
+            v_next_month := (v_month + INTERVAL '1 MONTH')::DATE;
+            v_partition := 'devices_' || TO_CHAR(v_month, 'YYYY_MM');
+            IF TO_REGCLASS(v_partition) IS NULL THEN
+                -- CREATE ... PARTITION OF fails while devices_default holds rows for the month, so build the partition standalone, move those rows into it and attach it
+                LOCK TABLE devices_default IN EXCLUSIVE MODE;
+                EXECUTE FORMAT('CREATE TABLE %I (LIKE devices INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_partition);
+                EXECUTE FORMAT('WITH moved AS (DELETE FROM devices_default WHERE created_at >= %L AND created_at < %L RETURNING *) INSERT INTO %I SELECT * FROM moved', v_month, v_next_month, v_partition);
+                GET DIAGNOSTICS v_rows = ROW_COUNT;
+                EXECUTE FORMAT('ALTER TABLE devices ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)', v_partition, v_month, v_next_month);
+                v_created := v_created + 1;
+                v_moved := v_moved + v_rows;
+            END IF;
+        END LOOP;
+        FOR v_partition IN SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'devices'::REGCLASS AND c.relname ~ '^devices_\d{4}_\d{2}$' AND TO_DATE(SUBSTRING(c.relname FROM 9), 'YYYY_MM') < v_cutoff LOOP
+            EXECUTE FORMAT('DROP TABLE %I', v_partition);
+            v_dropped := v_dropped + 1;
+        END LOOP;
+        DELETE FROM devices_default WHERE devices_default.created_at < v_cutoff;
+        GET DIAGNOSTICS v_purged = ROW_COUNT;
+        IF v_moved > 0 OR v_purged > 0 THEN
+            RAISE WARNING 'devices_default held % rows: % moved into monthly partitions, % past retention deleted', v_moved + v_purged, v_moved, v_purged;
+        END IF;
+        DELETE FROM device_summaries WHERE device_summaries.last_seen < v_cutoff;
+        RETURN QUERY SELECT v_created, v_dropped, v_moved, v_purged;
+    END;
+    $$;
+
+-- Creates the monthly partitions for the retention window before loading so rows do not land in devices_default
+SELECT * FROM maintain_device_partitions(3, 6);
+
+INSERT INTO devices (device_id, user_id, device, client, ip_address, created_at, updated_at)
+    SELECT device_id, user_id, device, client, ip_address, COALESCE(created_at, updated_at, CURRENT_TIMESTAMP), updated_at FROM devices_unpartitioned
+    WHERE COALESCE(created_at, updated_at, CURRENT_TIMESTAMP) >= DATE_TRUNC('MONTH', CURRENT_DATE) - INTERVAL '6 MONTHS';
+
+SELECT SETVAL(PG_GET_SERIAL_SEQUENCE('devices', 'device_id'), COALESCE(MAX(device_id), 0) + 1, FALSE) FROM devices_unpartitioned;
+
+-- Summaries count the full login history, not only the rows kept above
+INSERT INTO device_summaries (user_id, device, client, ip_address, login_count, first_seen, last_seen)
+    SELECT user_id, device, client, (ARRAY_AGG(ip_address ORDER BY COALESCE(created_at, updated_at) DESC NULLS LAST))[1], COUNT(*), MIN(COALESCE(created_at, updated_at, CURRENT_TIMESTAMP)), MAX(COALESCE(created_at, updated_at, CURRENT_TIMESTAMP))
+    FROM devices_unpartitioned GROUP BY user_id, device, client
+    ON CONFLICT ON CONSTRAINT uq_device_summaries_user_id_device_client DO UPDATE SET ip_address = EXCLUDED.ip_address, login_count = EXCLUDED.login_count, first_seen = EXCLUDED.first_seen, last_seen = EXCLUDED.last_seen;
+
+DROP TABLE devices_unpartitioned;
+
+-- Prunes summaries that fall outside the retention window
+SELECT * FROM maintain_device_partitions(3, 6);
+
+COMMIT;
@@ -68,7 +68,7 @@ public class HandleException extends ResponseEntityExceptionHandler implements E
 
     @ExceptionHandler(ApiException.class)
     public ResponseEntity<Response> apiException(ApiException exception) {
-        log.error(String.format("ApiException: %s", exception.getMessage()));
+        log.debug("ApiException: {}", exception.getMessage());
         return new ResponseEntity<>(handleErrorResponse(exception.getMessage(), getRootCauseMessage(exception), request, BAD_REQUEST), BAD_REQUEST);
     }
 
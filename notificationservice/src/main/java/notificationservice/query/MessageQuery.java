@@ -20,10 +20,6 @@ public class MessageQuery {
                                """
                                UPDATE message_statuses SET message_status = :status WHERE user_id = (SELECT u.user_id FROM users u WHERE u.user_uuid = :userUuid) AND ms.message_id = :messageId
                                """;
-    public static final String SELECT_MESSAGE_COUNT_QUERY =
-                               """
-                               SELECT COUNT(m.message_id) FROM messages m JOIN users s ON m.sender_id = s.user_id JOIN users r ON m.receiver_id = r.user_id WHERE (s.user_uuid = :userUuid AND r.email = :toEmail) OR (s.email = :toEmail AND r.user_uuid = :userUuid)
-                               """;
     public static final String SELECT_CONVERSATION_ID_QUERY =
                                """
                                SELECT m.message_id FROM messages m JOIN users s ON m.sender_id = s.user_id JOIN users r ON m.receiver_id = r.user_id WHERE (s.user_uuid = :userUuid AND r.email = :toEmail) OR (s.email = :toEmail AND r.user_uuid = :userUuid) LIMIT 1
@@ -9,6 +9,7 @@ import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
 
 
 import static java.util.Map.of;
@@ -22,13 +23,13 @@ public class NotificationRepositoryImpl implements NotificationRepository {
     @Override
     public Message sendMessage(String fromUserUuid, String toEmail, String subject, String message) {
         try {
-            return jdbc.sql(CREATE_MESSAGE_FUNCTION).params(of("messageUuid", randomUUID.get(), "fromUserUuid", fromUserUuid, "toEmail", toEmail, "subject", subject, "message", message, "conversationId", conversationExist(fromUserUuid, toEmail) ? getConversationId(fromUserUuid, toEmail) : randomUUID.get())).query(Message.class).single();
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException(String.format("No user found user by UUID %s", toEmail));
+            return jdbc.sql(CREATE_MESSAGE_FUNCTION).params(of("messageUuid", randomUUID.get(), "fromUserUuid", fromUserUuid, "toEmail", toEmail, "subject", subject, "message", message, "conversationId", findConversationId(fromUserUuid, toEmail).orElseGet(randomUUID))).query(Message.class).optional()
+                    .orElseThrow(() -> new ApiException(String.format("No user found user by UUID %s", toEmail)));
+        } catch (ApiException exception) {
+            throw exception;
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
@@ -41,7 +42,7 @@ public class NotificationRepositoryImpl implements NotificationRepository {
             throw new ApiException(String.format("No user found user by UUID %s", userUuid));
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
@@ -54,20 +55,20 @@ public class NotificationRepositoryImpl implements NotificationRepository {
             throw new ApiException(String.format("No user found user by UUID %s", userUuid));
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
     public String getMessageStatus(String userUuid, Long messageId) {
         try {
-            return jdbc.sql(SELECT_MESSAGE_STATUS_QUERY).params(of("userUuid", userUuid, "messageId", messageId)).query(String.class).single();
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException(String.format("No user found user by UUID %s", userUuid));
+            return jdbc.sql(SELECT_MESSAGE_STATUS_QUERY).params(of("userUuid", userUuid, "messageId", messageId)).query(String.class).optional()
+                    .orElseThrow(() -> new ApiException(String.format("No user found user by UUID %s", userUuid)));
+        } catch (ApiException exception) {
+            throw exception;
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
@@ -81,32 +82,16 @@ public class NotificationRepositoryImpl implements NotificationRepository {
             throw new ApiException(String.format("No user found user by UUID %s", userUuid));
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
-    private Boolean conversationExist(String userUuid, String toEmail) {
+    private Optional<String> findConversationId(String userUuid, String toEmail) {
         try {
-            var count = jdbc.sql(SELECT_MESSAGE_COUNT_QUERY).params(of("userUuid", userUuid, "toEmail", toEmail)).query(Integer.class).single();
-            return count > 0;
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException(String.format("No user found user by UUID %s", userUuid));
-        } catch (Exception exception) {
-            log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
-        }
-    }
-
-    private String getConversationId(String userUuid, String toEmail) {
-        try {
-            return jdbc.sql(SELECT_CONVERSATION_ID_QUERY).params(of("userUuid", userUuid, "toEmail", toEmail)).query(String.class).single();
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException(String.format("No user found user by UUID %s", userUuid));
+            return jdbc.sql(SELECT_CONVERSATION_ID_QUERY).params(of("userUuid", userUuid, "toEmail", toEmail)).query(String.class).optional();
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 }
\ No newline at end of file
@@ -20,6 +20,8 @@
 
 BEGIN;
 
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
 -- Authrozation Server
 
 CREATE TABLE IF NOT EXISTS oauth2_registered_client (
@@ -52,7 +54,6 @@ CREATE TABLE IF NOT EXISTS users (
     address VARCHAR(100) DEFAULT NULL,
     bio VARCHAR(100) DEFAULT NULL,
     qr_code_secret VARCHAR(50) DEFAULT NULL,
-    qr_code_image_uri TEXT DEFAULT NULL,
     image_url VARCHAR(255) DEFAULT 'https://cdn-icons-png.flaticon.com/512/149/149071.png',
     last_login TIMESTAMP(6) WITH TIME ZONE DEFAULT NULL,
     login_attempts INTEGER DEFAULT 0,
@@ -68,6 +69,10 @@ CREATE TABLE IF NOT EXISTS users (
     CONSTRAINT uq_users_member_id UNIQUE (member_id)
 );
 
+CREATE SEQUENCE IF NOT EXISTS member_id_seq CACHE 20;
+
+CREATE INDEX IF NOT EXISTS idx_users_search ON users USING GIN ((first_name || ' ' || last_name || ' ' || email || ' ' || username) gin_trgm_ops);
+
 CREATE TABLE IF NOT EXISTS roles (
     role_id BIGSERIAL PRIMARY KEY,
     role_uuid VARCHAR(40) NOT NULL,
@@ -110,6 +115,8 @@ CREATE TABLE IF NOT EXISTS account_tokens (
     CONSTRAINT fk_account_tokens_user_id FOREIGN KEY (user_id) REFERENCES users (user_id) MATCH SIMPLE ON UPDATE CASCADE ON DELETE RESTRICT
 );
 
+CREATE INDEX IF NOT EXISTS idx_account_tokens_created_at ON account_tokens (created_at);
+
 CREATE TABLE IF NOT EXISTS password_tokens (
     password_token_id BIGSERIAL PRIMARY KEY,
     token VARCHAR(40) NOT NULL,
@@ -121,17 +128,75 @@ CREATE TABLE IF NOT EXISTS password_tokens (
     CONSTRAINT fk_password_tokens_user_id FOREIGN KEY (user_id) REFERENCES users (user_id) MATCH SIMPLE ON UPDATE CASCADE ON DELETE RESTRICT
 );
 
+CREATE INDEX IF NOT EXISTS idx_password_tokens_created_at ON password_tokens (created_at);
+
+CREATE TABLE IF NOT EXISTS registrations (
+    idempotency_key VARCHAR(64) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    succeeded BOOLEAN NOT NULL DEFAULT FALSE,
+    message VARCHAR(255) DEFAULT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_registrations_created_at ON registrations (created_at);
+
+-- Databases created before devices was partitioned are converted by migrate_devices.sql
 CREATE TABLE IF NOT EXISTS devices (
-    device_id BIGSERIAL PRIMARY KEY,
+    device_id BIGSERIAL,
     user_id BIGINT NOT NULL,
     device VARCHAR(40) NOT NULL,
     client VARCHAR(40) NOT NULL,
     ip_address VARCHAR(100) NOT NULL,
-    created_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_devices PRIMARY KEY (device_id, created_at),
     CONSTRAINT fk_devices_user_id FOREIGN KEY (user_id) REFERENCES users (user_id) MATCH SIMPLE ON UPDATE CASCADE ON DELETE RESTRICT
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE IF NOT EXISTS devices_default PARTITION OF devices DEFAULT;
+
+CREATE TABLE IF NOT EXISTS device_summaries (
+    device_summary_id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    device VARCHAR(40) NOT NULL,
+    client VARCHAR(40) NOT NULL,
+    ip_address VARCHAR(100) NOT NULL,
+    login_count BIGINT NOT NULL DEFAULT 1,
+    first_seen TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_seen TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uq_device_summaries_user_id_device_client UNIQUE (user_id, device, client),
+    CONSTRAINT fk_device_summaries_user_id FOREIGN KEY (user_id) REFERENCES users (user_id) MATCH SIMPLE ON UPDATE CASCADE ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_device_summaries_user_id_last_seen ON device_summaries (user_id, last_seen DESC);
+
+CREATE TABLE IF NOT EXISTS mfa_qr_codes (
+    user_id BIGINT PRIMARY KEY,
+    qr_code_image BYTEA NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_mfa_qr_codes_user_id FOREIGN KEY (user_id) REFERENCES users (user_id) MATCH SIMPLE ON UPDATE CASCADE ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS photos (
+    photo_id BIGSERIAL PRIMARY KEY,
+    filename VARCHAR(80) NOT NULL,
+    reference_count INTEGER NOT NULL DEFAULT 1,
+    created_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uq_photos_filename UNIQUE (filename)
+);
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    outbox_event_id BIGSERIAL PRIMARY KEY,
+    topic VARCHAR(50) NOT NULL,
+    event_key VARCHAR(100) DEFAULT NULL,
+    payload TEXT NOT NULL,
+    claimed_until TIMESTAMP(6) WITH TIME ZONE DEFAULT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
 );
 
+CREATE INDEX IF NOT EXISTS idx_outbox_events_event_key ON outbox_events (event_key, outbox_event_id);
+
 -- Ticket Service
 
 CREATE TABLE IF NOT EXISTS tickets (
@@ -273,30 +338,95 @@ CREATE TABLE IF NOT EXISTS message_statuses (
     CONSTRAINT k_message_statuses_message_id FOREIGN KEY (message_id) REFERENCES messages (message_id) MATCH SIMPLE ON UPDATE CASCADE ON DELETE CASCADE
 );
 
--- Stored Procedures
+-- Functions
+
+CREATE OR REPLACE FUNCTION next_member_id ()
+    RETURNS VARCHAR
+    LANGUAGE PLPGSQL
+    AS $$
+    DECLARE
+        v_member_id VARCHAR;
+    BEGIN
+        LOOP
+            v_member_id := REGEXP_REPLACE(LPAD(((NEXTVAL('member_id_seq')::NUMERIC * 7919876543) % 10000000000)::TEXT, 10, '0'), '^(\d{4})(\d{2})(\d{4})$', '\1-\2-\3');
+            EXIT WHEN NOT EXISTS (SELECT 1 FROM users WHERE users.member_id = v_member_id);
+        END LOOP;
+        RETURN v_member_id;
+    END;
+    $$
 
-CREATE OR REPLACE PROCEDURE create_user (IN p_user_uuid VARCHAR(40), IN p_first_name VARCHAR(25), IN p_last_name VARCHAR(25), IN p_email VARCHAR(40), IN p_username VARCHAR(25), IN p_password VARCHAR(255), IN p_credential_uuid VARCHAR(40), IN p_token VARCHAR(40), IN p_member_id VARCHAR(40))
+CREATE OR REPLACE FUNCTION create_user (IN p_user_uuid VARCHAR(40), IN p_first_name VARCHAR(25), IN p_last_name VARCHAR(25), IN p_email VARCHAR(40), IN p_username VARCHAR(25), IN p_password VARCHAR(255), IN p_credential_uuid VARCHAR(40), IN p_token VARCHAR(40))
+    RETURNS BIGINT
     LANGUAGE PLPGSQL
     AS $$
     DECLARE
         v_user_id BIGINT;
     BEGIN
-        INSERT INTO users (user_uuid, first_name, last_name, email, username, member_id) VALUES (p_user_uuid, p_first_name, p_last_name, p_email, p_username, p_member_id) RETURNING user_id INTO v_user_id;
+        INSERT INTO users (user_uuid, first_name, last_name, email, username, member_id) VALUES (p_user_uuid, p_first_name, p_last_name, p_email, p_username, next_member_id()) ON CONFLICT DO NOTHING RETURNING user_id INTO v_user_id;
+        IF v_user_id IS NULL THEN
+            RETURN NULL;
+        END IF;
         INSERT INTO credentials (credential_uuid, user_id, password) VALUES (p_credential_uuid, v_user_id, p_password);
         INSERT INTO user_roles (user_id, role_id) VALUES (v_user_id, (SELECT roles.role_id FROM roles WHERE roles.name = 'USER'));
         INSERT INTO account_tokens (user_id, token) VALUES (v_user_id, p_token);
+        RETURN v_user_id;
     END;
     $$
 
--- Functions
+CREATE OR REPLACE FUNCTION verify_account (IN p_token VARCHAR(40))
+    RETURNS TABLE(account_token_id BIGINT, token VARCHAR, user_id BIGINT, expired BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, updated_at TIMESTAMP WITH TIME ZONE)
+    LANGUAGE PLPGSQL
+    AS $$
+    BEGIN
+        RETURN QUERY WITH deleted AS (
+            DELETE FROM account_tokens WHERE account_tokens.token = p_token RETURNING account_tokens.account_token_id, account_tokens.token, account_tokens.user_id, (account_tokens.created_at + INTERVAL '24 HOURS') < NOW() AS expired, account_tokens.created_at, account_tokens.updated_at
+        ), updated AS (
+            UPDATE users SET enabled = TRUE, account_non_expired = TRUE, account_non_locked = TRUE FROM deleted WHERE users.user_id = deleted.user_id AND NOT deleted.expired
+        )
+        SELECT d.account_token_id, d.token, d.user_id, d.expired, d.created_at, d.updated_at FROM deleted d;
+    END;
+    $$
 
-CREATE OR REPLACE FUNCTION enable_user_mfa (IN p_user_uuid VARCHAR(40), IN p_qr_code_secret VARCHAR(50), IN p_qr_code_image_uri TEXT)
-    RETURNS TABLE(qr_code_image_uri TEXT, member_id VARCHAR, role VARCHAR, authorities TEXT, account_non_expired BOOLEAN, account_non_locked BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, email VARCHAR, enabled BOOLEAN, first_name VARCHAR, user_id BIGINT, image_url VARCHAR, last_login TIMESTAMP WITH TIME ZONE, last_name VARCHAR, mfa BOOLEAN, updated_at TIMESTAMP WITH TIME ZONE, user_uuid VARCHAR, phone VARCHAR, bio VARCHAR, address VARCHAR)
+CREATE OR REPLACE FUNCTION reset_password (IN p_email VARCHAR(40), IN p_token VARCHAR(40))
+    RETURNS TABLE(password_token_id BIGINT, token VARCHAR, user_id BIGINT, expired BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, updated_at TIMESTAMP WITH TIME ZONE, first_name VARCHAR)
+    LANGUAGE PLPGSQL
+    AS $$
+    DECLARE
+        v_user_id BIGINT;
+        v_first_name VARCHAR;
+    BEGIN
+        SELECT users.user_id, users.first_name INTO v_user_id, v_first_name FROM users WHERE users.email = p_email;
+        IF v_user_id IS NULL THEN
+            RETURN;
+        END IF;
+        INSERT INTO password_tokens AS pt (user_id, token) VALUES (v_user_id, p_token)
+            ON CONFLICT ON CONSTRAINT uq_password_tokens_user_id DO UPDATE SET token = EXCLUDED.token, created_at = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP WHERE (pt.created_at + INTERVAL '24 HOURS') < NOW();
+        RETURN QUERY SELECT pt.password_token_id, pt.token, pt.user_id, (pt.created_at + INTERVAL '24 HOURS') < NOW() AS expired, pt.created_at, pt.updated_at, v_first_name FROM password_tokens pt WHERE pt.user_id = v_user_id;
+    END;
+    $$
+
+CREATE OR REPLACE FUNCTION do_reset_password (IN p_user_uuid VARCHAR(40), IN p_token VARCHAR(40), IN p_password VARCHAR(255))
+    RETURNS TABLE(password_token_id BIGINT, token VARCHAR, user_id BIGINT, expired BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, updated_at TIMESTAMP WITH TIME ZONE)
+    LANGUAGE PLPGSQL
+    AS $$
+    BEGIN
+        RETURN QUERY WITH deleted AS (
+            DELETE FROM password_tokens USING users WHERE password_tokens.token = p_token AND password_tokens.user_id = users.user_id AND users.user_uuid = p_user_uuid RETURNING password_tokens.password_token_id, password_tokens.token, password_tokens.user_id, (password_tokens.created_at + INTERVAL '24 HOURS') < NOW() AS expired, password_tokens.created_at, password_tokens.updated_at
+        ), updated AS (
+            UPDATE credentials SET password = p_password, updated_at = CURRENT_TIMESTAMP FROM deleted WHERE credentials.user_id = deleted.user_id AND NOT deleted.expired
+        )
+        SELECT d.password_token_id, d.token, d.user_id, d.expired, d.created_at, d.updated_at FROM deleted d;
+    END;
+    $$
+
+CREATE OR REPLACE FUNCTION enable_user_mfa (IN p_user_uuid VARCHAR(40), IN p_qr_code_secret VARCHAR(50))
+    RETURNS TABLE(member_id VARCHAR, role VARCHAR, authorities TEXT, account_non_expired BOOLEAN, account_non_locked BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, email VARCHAR, enabled BOOLEAN, first_name VARCHAR, user_id BIGINT, image_url VARCHAR, last_login TIMESTAMP WITH TIME ZONE, last_name VARCHAR, mfa BOOLEAN, updated_at TIMESTAMP WITH TIME ZONE, user_uuid VARCHAR, phone VARCHAR, bio VARCHAR, address VARCHAR)
     LANGUAGE PLPGSQL
     AS $$
     BEGIN
-        UPDATE users SET mfa = TRUE, qr_code_secret = p_qr_code_secret, qr_code_image_uri = p_qr_code_image_uri WHERE users.user_uuid = p_user_uuid;
-        RETURN QUERY SELECT u.qr_code_image_uri, u.member_id, r.name AS role, r.authority AS authorities, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.phone, u.bio, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_uuid = p_user_uuid;
+        UPDATE users SET mfa = TRUE, qr_code_secret = p_qr_code_secret WHERE users.user_uuid = p_user_uuid;
+        DELETE FROM mfa_qr_codes WHERE mfa_qr_codes.user_id = (SELECT users.user_id FROM users WHERE users.user_uuid = p_user_uuid);
+        RETURN QUERY SELECT u.member_id, r.name AS role, r.authority AS authorities, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.phone, u.bio, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_uuid = p_user_uuid;
     END;
     $$
 
@@ -305,51 +435,114 @@ CREATE OR REPLACE FUNCTION disable_user_mfa (IN p_user_uuid VARCHAR(40))
     LANGUAGE PLPGSQL
     AS $$
     BEGIN
-        UPDATE users SET mfa = FALSE, qr_code_secret = NULL, qr_code_image_uri = NULL WHERE users.user_uuid = p_user_uuid;
+        UPDATE users SET mfa = FALSE, qr_code_secret = NULL WHERE users.user_uuid = p_user_uuid;
+        DELETE FROM mfa_qr_codes WHERE mfa_qr_codes.user_id = (SELECT users.user_id FROM users WHERE users.user_uuid = p_user_uuid);
         RETURN QUERY SELECT u.member_id, r.name AS role, r.authority AS authorities, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.phone, u.bio, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_uuid = p_user_uuid;
     END;
     $$
 
 CREATE OR REPLACE FUNCTION toggle_account_expired (IN p_user_uuid VARCHAR(40))
-    RETURNS TABLE(qr_code_image_uri TEXT, member_id VARCHAR, role VARCHAR, authorities TEXT, account_non_expired BOOLEAN, account_non_locked BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, email VARCHAR, enabled BOOLEAN, first_name VARCHAR, user_id BIGINT, image_url VARCHAR, last_login TIMESTAMP WITH TIME ZONE, last_name VARCHAR, mfa BOOLEAN, updated_at TIMESTAMP WITH TIME ZONE, user_uuid VARCHAR, phone VARCHAR, bio VARCHAR, address VARCHAR)
+    RETURNS TABLE(member_id VARCHAR, role VARCHAR, authorities TEXT, account_non_expired BOOLEAN, account_non_locked BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, email VARCHAR, enabled BOOLEAN, first_name VARCHAR, user_id BIGINT, image_url VARCHAR, last_login TIMESTAMP WITH TIME ZONE, last_name VARCHAR, mfa BOOLEAN, updated_at TIMESTAMP WITH TIME ZONE, user_uuid VARCHAR, phone VARCHAR, bio VARCHAR, address VARCHAR)
     LANGUAGE PLPGSQL
     AS $$
     BEGIN
         UPDATE users SET account_non_expired = NOT users.account_non_expired WHERE users.user_uuid = p_user_uuid;
-        RETURN QUERY SELECT u.qr_code_image_uri, u.member_id, r.name AS role, r.authority AS authorities, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.phone, u.bio, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_uuid = p_user_uuid;
+        RETURN QUERY SELECT u.member_id, r.name AS role, r.authority AS authorities, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.phone, u.bio, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_uuid = p_user_uuid;
     END;
     $$
 
 CREATE OR REPLACE FUNCTION toggle_account_locked (IN p_user_uuid VARCHAR(40))
-    RETURNS TABLE(qr_code_image_uri TEXT, member_id VARCHAR, role VARCHAR, authorities TEXT, account_non_expired BOOLEAN, account_non_locked BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, email VARCHAR, enabled BOOLEAN, first_name VARCHAR, user_id BIGINT, image_url VARCHAR, last_login TIMESTAMP WITH TIME ZONE, last_name VARCHAR, mfa BOOLEAN, updated_at TIMESTAMP WITH TIME ZONE, user_uuid VARCHAR, phone VARCHAR, bio VARCHAR, address VARCHAR)
+    RETURNS TABLE(member_id VARCHAR, role VARCHAR, authorities TEXT, account_non_expired BOOLEAN, account_non_locked BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, email VARCHAR, enabled BOOLEAN, first_name VARCHAR, user_id BIGINT, image_url VARCHAR, last_login TIMESTAMP WITH TIME ZONE, last_name VARCHAR, mfa BOOLEAN, updated_at TIMESTAMP WITH TIME ZONE, user_uuid VARCHAR, phone VARCHAR, bio VARCHAR, address VARCHAR)
     LANGUAGE PLPGSQL
     AS $$
     BEGIN
         UPDATE users SET account_non_locked = NOT users.account_non_locked WHERE users.user_uuid = p_user_uuid;
-        RETURN QUERY SELECT u.qr_code_image_uri, u.member_id, r.name AS role, r.authority AS authorities, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.phone, u.bio, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_uuid = p_user_uuid;
+        RETURN QUERY SELECT u.member_id, r.name AS role, r.authority AS authorities, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.phone, u.bio, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_uuid = p_user_uuid;
     END;
     $$
 
 CREATE OR REPLACE FUNCTION toggle_account_enabled (IN p_user_uuid VARCHAR(40))
-    RETURNS TABLE(qr_code_image_uri TEXT, member_id VARCHAR, role VARCHAR, authorities TEXT, account_non_expired BOOLEAN, account_non_locked BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, email VARCHAR, enabled BOOLEAN, first_name VARCHAR, user_id BIGINT, image_url VARCHAR, last_login TIMESTAMP WITH TIME ZONE, last_name VARCHAR, mfa BOOLEAN, updated_at TIMESTAMP WITH TIME ZONE, user_uuid VARCHAR, phone VARCHAR, bio VARCHAR, address VARCHAR)
+    RETURNS TABLE(member_id VARCHAR, role VARCHAR, authorities TEXT, account_non_expired BOOLEAN, account_non_locked BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, email VARCHAR, enabled BOOLEAN, first_name VARCHAR, user_id BIGINT, image_url VARCHAR, last_login TIMESTAMP WITH TIME ZONE, last_name VARCHAR, mfa BOOLEAN, updated_at TIMESTAMP WITH TIME ZONE, user_uuid VARCHAR, phone VARCHAR, bio VARCHAR, address VARCHAR)
     LANGUAGE PLPGSQL
     AS $$
     BEGIN
         UPDATE users SET enabled = NOT users.enabled WHERE users.user_uuid = p_user_uuid;
-        RETURN QUERY SELECT u.qr_code_image_uri, u.member_id, r.name AS role, r.authority AS authorities, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.phone, u.bio, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_uuid = p_user_uuid;
+        RETURN QUERY SELECT u.member_id, r.name AS role, r.authority AS authorities, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.phone, u.bio, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_uuid = p_user_uuid;
     END;
     $$
 
 CREATE OR REPLACE FUNCTION update_user_role (IN p_user_uuid VARCHAR(40), IN p_role VARCHAR(25))
-    RETURNS TABLE(qr_code_image_uri TEXT, member_id VARCHAR, role VARCHAR, authorities TEXT, account_non_expired BOOLEAN, account_non_locked BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, email VARCHAR, enabled BOOLEAN, first_name VARCHAR, user_id BIGINT, image_url VARCHAR, last_login TIMESTAMP WITH TIME ZONE, last_name VARCHAR, mfa BOOLEAN, updated_at TIMESTAMP WITH TIME ZONE, user_uuid VARCHAR, phone VARCHAR, bio VARCHAR, address VARCHAR)
+    RETURNS TABLE(member_id VARCHAR, role VARCHAR, authorities TEXT, account_non_expired BOOLEAN, account_non_locked BOOLEAN, created_at TIMESTAMP WITH TIME ZONE, email VARCHAR, enabled BOOLEAN, first_name VARCHAR, user_id BIGINT, image_url VARCHAR, last_login TIMESTAMP WITH TIME ZONE, last_name VARCHAR, mfa BOOLEAN, updated_at TIMESTAMP WITH TIME ZONE, user_uuid VARCHAR, phone VARCHAR, bio VARCHAR, address VARCHAR)
     LANGUAGE PLPGSQL
     AS $$
     BEGIN
         UPDATE user_roles SET role_id = (SELECT r.role_id FROM roles r WHERE r.name = p_role) WHERE user_roles.user_id = (SELECT users.user_id FROM users WHERE users.user_uuid = p_user_uuid);
-        RETURN QUERY SELECT u.qr_code_image_uri, u.member_id, r.name AS role, r.authority AS authorities, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.phone, u.bio, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_uuid = p_user_uuid;
+        RETURN QUERY SELECT u.member_id, r.name AS role, r.authority AS authorities, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.phone, u.bio, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_uuid = p_user_uuid;
+    END;
+    $$
+
+CREATE OR REPLACE FUNCTION set_updated_at ()
+    RETURNS TRIGGER
+    LANGUAGE PLPGSQL
+    AS $$
+    BEGIN
+        NEW.updated_at = CURRENT_TIMESTAMP;
+        RETURN NEW;
     END;
     $$
 
+CREATE OR REPLACE TRIGGER trg_users_updated_at BEFORE UPDATE ON users FOR EACH ROW EXECUTE FUNCTION set_updated_at();
+
+CREATE OR REPLACE FUNCTION maintain_device_partitions (IN p_months_ahead INTEGER, IN p_retention_months INTEGER)
+    RETURNS TABLE(created INTEGER, dropped INTEGER, moved BIGINT, purged BIGINT)
+    LANGUAGE PLPGSQL
+    AS $$
+    DECLARE
+        v_month DATE;
+        v_next_month DATE;
+        v_cutoff DATE := (DATE_TRUNC('MONTH', CURRENT_DATE) - MAKE_INTERVAL(months => p_retention_months))::DATE;
+        v_partition VARCHAR;
+        v_rows BIGINT;
+        v_created INTEGER := 0;
+        v_dropped INTEGER := 0;
+        v_moved BIGINT := 0;
+        v_purged BIGINT := 0;
+    BEGIN
+        IF NOT PG_TRY_ADVISORY_XACT_LOCK(HASHTEXT('maintain_device_partitions')) THEN
+            RETURN QUERY SELECT v_created, v_dropped, v_moved, v_purged;
+            RETURN;
+        END IF;
+        FOR v_offset IN -p_retention_months..p_months_ahead LOOP
+            v_month := (DATE_TRUNC('MONTH', CURRENT_DATE) + MAKE_INTERVAL(months => v_offset))::DATE;
+            v_next_month := (v_month + INTERVAL '1 MONTH')::DATE;
+            v_partition := 'devices_' || TO_CHAR(v_month, 'YYYY_MM');
+            IF TO_REGCLASS(v_partition) IS NULL THEN
+                -- CREATE ... PARTITION OF fails while devices_default holds rows for the month, so build the partition standalone, move those rows into it and attach it
+                LOCK TABLE devices_default IN EXCLUSIVE MODE;
+                EXECUTE FORMAT('CREATE TABLE %I (LIKE devices INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_partition);
+                EXECUTE FORMAT('WITH moved AS (DELETE FROM devices_default WHERE created_at >= %L AND created_at < %L RETURNING *) INSERT INTO %I SELECT * FROM moved', v_month, v_next_month, v_partition);
+                GET DIAGNOSTICS v_rows = ROW_COUNT;
+                EXECUTE FORMAT('ALTER TABLE devices ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)', v_partition, v_month, v_next_month);
+                v_created := v_created + 1;
+                v_moved := v_moved + v_rows;
+            END IF;
+        END LOOP;
+        FOR v_partition IN SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'devices'::REGCLASS AND c.relname ~ '^devices_\d{4}_\d{2}$' AND TO_DATE(SUBSTRING(c.relname FROM 9), 'YYYY_MM') < v_cutoff LOOP
+            EXECUTE FORMAT('DROP TABLE %I', v_partition);
+            v_dropped := v_dropped + 1;
+        END LOOP;
+        DELETE FROM devices_default WHERE devices_default.created_at < v_cutoff;
+        GET DIAGNOSTICS v_purged = ROW_COUNT;
+        IF v_moved > 0 OR v_purged > 0 THEN
+            RAISE WARNING 'devices_default held % rows: % moved into monthly partitions, % past retention deleted', v_moved + v_purged, v_moved, v_purged;
+        END IF;
+        DELETE FROM device_summaries WHERE device_summaries.last_seen < v_cutoff;
+        RETURN QUERY SELECT v_created, v_dropped, v_moved, v_purged;
+    END;
+    $$
+
+SELECT * FROM maintain_device_partitions(3, 6);
+
 CREATE OR REPLACE FUNCTION create_ticket (IN p_ticket_uuid VARCHAR(40), IN p_user_uuid VARCHAR(40), IN p_title VARCHAR(100), IN p_description TEXT, IN p_type VARCHAR(20), IN p_priority VARCHAR(10))
     RETURNS TABLE (comment_count BIGINT, file_count BIGINT, ticket_id BIGINT, ticket_uuid VARCHAR, title VARCHAR, description TEXT, progress INT, due_date TIMESTAMP WITH TIME ZONE, created_at TIMESTAMP WITH TIME ZONE, updated_at TIMESTAMP WITH TIME ZONE, status VARCHAR, type VARCHAR, priority VARCHAR)
     LANGUAGE PLPGSQL
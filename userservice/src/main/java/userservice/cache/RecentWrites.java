@@ -0,0 +1,27 @@
+package userservice.cache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import userservice.config.ReplicaRoutingDataSource;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static java.util.Objects.isNull;
+@Component
+public class RecentWrites {
+    private final Cache<String, Boolean> writes;
+
+    public RecentWrites(@Value("${user.read-your-writes.window:PT5S}") Duration window, @Value("${user.cache.max-size:10000}") long maxSize) {
+        this.writes = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(window).build();
+    }
+
+    public void record(String userUuid) {
+        writes.put(userUuid, true);
+    }
+
+    public <T> T read(String userUuid, Supplier<T> reader) {
+        return isNull(writes.getIfPresent(userUuid)) ? ReplicaRoutingDataSource.onReplica(reader) : reader.get();
+    }
+}
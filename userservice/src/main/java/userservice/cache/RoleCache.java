@@ -0,0 +1,50 @@
+package userservice.cache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import userservice.domain.Role;
+import userservice.exception.ApiException;
+import userservice.repository.RoleRepository;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.nonNull;
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoleCache {
+    private final RoleRepository roleRepository;
+    private volatile Map<Long, Role> roles = Map.of();
+
+    @Scheduled(fixedDelayString = "${role.cache.refresh-interval:PT10M}")
+    public void refresh() {
+        try {
+            log.info("Loaded {} roles", load().size());
+        } catch (Exception exception) {
+            log.error("Unable to refresh roles: {}", exception.getMessage());
+        }
+    }
+
+    public Role getRole(Long roleId) {
+        var role = roles.get(roleId);
+        if(nonNull(role)) { return role; }
+        return Optional.ofNullable(load().get(roleId)).orElseThrow(() -> new ApiException("Role not found. Please try again."));
+    }
+
+    public Optional<Role> getRole(String name) {
+        return find(roles, name).or(() -> find(load(), name));
+    }
+
+    private synchronized Map<Long, Role> load() {
+        roles = roleRepository.getRoles().stream().collect(Collectors.toUnmodifiableMap(Role::roleId, Function.identity()));
+        return roles;
+    }
+
+    private static Optional<Role> find(Map<Long, Role> roles, String name) {
+        return roles.values().stream().filter(role -> role.name().equalsIgnoreCase(name)).findFirst();
+    }
+}
@@ -0,0 +1,90 @@
+package userservice.cache;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import userservice.repository.UserRepository;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+@Slf4j
+@Component
+public class TokenFilter {
+    private final UserRepository userRepository;
+    private final double fpp;
+    private final int fetchSize;
+    private final Counter rejected;
+    private long capacity;
+    private volatile BloomFilter<CharSequence> tokens;
+    private volatile boolean listening;
+    private volatile boolean ready;
+    private BloomFilter<CharSequence> rebuilding;
+    private Set<String> added = new HashSet<>();
+    private final Object rebuildLock = new Object();
+
+    public TokenFilter(UserRepository userRepository, @Value("${token.filter.expected-insertions:100000}") long capacity, @Value("${token.filter.fpp:0.01}") double fpp,
+                       @Value("${token.filter.fetch-size:1000}") int fetchSize, MeterRegistry registry) {
+        this.userRepository = userRepository;
+        this.capacity = capacity;
+        this.fpp = fpp;
+        this.fetchSize = fetchSize;
+        this.rejected = registry.counter("token.filter.rejected");
+        registry.gauge("token.filter.size", this, filter -> nonNull(filter.tokens) ? filter.tokens.approximateElementCount() : 0);
+        registry.gauge("token.filter.fpp", this, filter -> nonNull(filter.tokens) ? filter.tokens.expectedFpp() : 0);
+    }
+
+    // Fails open until a rebuild that started after the listener was assigned has finished, so a miss is never a false negative
+    public boolean mightContain(String token) {
+        // ready is read before tokens: rebuild publishes tokens first, so a ready filter is always visible here
+        var complete = ready;
+        var filter = tokens;
+        if(isNull(token) || complete && nonNull(filter) && !filter.mightContain(token)) {
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public synchronized void add(String token) {
+        added.add(token);
+        if(nonNull(tokens)) { tokens.put(token); }
+        if(nonNull(rebuilding)) { rebuilding.put(token); }
+    }
+
+    public void onListening() {
+        listening = true;
+        if(!ready) { rebuild(); }
+    }
+
+    @Scheduled(fixedDelayString = "${token.filter.rebuild-interval:PT15M}")
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            var complete = listening;
+            var filter = BloomFilter.create(Funnels.stringFunnel(UTF_8), capacity, fpp);
+            synchronized (this) { rebuilding = filter; }
+            try {
+                userRepository.streamTokens(fetchSize, filter::put);
+                synchronized (this) {
+                    added.forEach(filter::put);
+                    added = new HashSet<>();
+                    tokens = filter;
+                    ready = ready || complete;
+                    capacity = Math.max(capacity, filter.approximateElementCount() * 2);
+                }
+                log.info("Rebuilt token filter with {} tokens", filter.approximateElementCount());
+            } catch (Exception exception) {
+                log.error("Unable to rebuild token filter: {}", exception.getMessage());
+            } finally {
+                synchronized (this) { rebuilding = null; }
+            }
+        }
+    }
+}
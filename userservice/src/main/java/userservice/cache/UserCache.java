@@ -0,0 +1,93 @@
+package userservice.cache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import userservice.model.User;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static java.util.Objects.nonNull;
+@Component
+public class UserCache {
+    private final Cache<String, User> users;
+    private final Cache<String, String> emails;
+    private final Map<Long, String> userIds = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserCache(@Value("${user.cache.max-size:10000}") long maxSize, @Value("${user.cache.ttl:PT5M}") Duration ttl, MeterRegistry registry) {
+        this.users = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().evictionListener((String userUuid, User user, RemovalCause cause) -> unindex(userUuid, user)).build();
+        this.emails = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+        CaffeineCacheMetrics.monitor(registry, users, "users.uuid");
+        CaffeineCacheMetrics.monitor(registry, emails, "users.email");
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public User getUserByUuid(String userUuid, Function<String, User> loader) {
+        var observed = generation.get();
+        return admit(users.get(userUuid, key -> index(loader.apply(key))), observed);
+    }
+
+    public User getUserIfPresent(String userUuid) {
+        return users.getIfPresent(userUuid);
+    }
+
+    public User cache(User user, long observed) {
+        return admit(users.asMap().computeIfAbsent(user.getUserUuid(), key -> index(user)), observed);
+    }
+
+    public User getUserByEmail(String email, Function<String, User> loader) {
+        var userUuid = emails.getIfPresent(email);
+        if(nonNull(userUuid)) {
+            var user = users.getIfPresent(userUuid);
+            if(nonNull(user) && email.equalsIgnoreCase(user.getEmail())) { return user; }
+            emails.invalidate(email);
+        }
+        var observed = generation.get();
+        var user = loader.apply(email);
+        emails.put(email, user.getUserUuid());
+        return cache(user, observed);
+    }
+
+    public void invalidate(String userUuid) {
+        generation.incrementAndGet();
+        var user = users.asMap().remove(userUuid);
+        if(nonNull(user)) { discard(userUuid, user); }
+    }
+
+    public void invalidate(Long userId) {
+        generation.incrementAndGet();
+        var userUuid = userIds.get(userId);
+        if(nonNull(userUuid)) { invalidate(userUuid); }
+    }
+
+    // Invalidations bump the generation before removing, so a user stored after a concurrent invalidation is dropped here instead of lingering until it expires
+    private User admit(User user, long observed) {
+        if(generation.get() != observed && users.asMap().remove(user.getUserUuid(), user)) { discard(user.getUserUuid(), user); }
+        return user;
+    }
+
+    private User index(User user) {
+        if(nonNull(user.getUserId())) { userIds.put(user.getUserId(), user.getUserUuid()); }
+        return user;
+    }
+
+    private void discard(String userUuid, User user) {
+        unindex(userUuid, user);
+        emails.invalidate(user.getEmail());
+    }
+
+    private void unindex(String userUuid, User user) {
+        if(nonNull(user) && nonNull(user.getUserId())) { userIds.remove(user.getUserId(), userUuid); }
+    }
+}
@@ -0,0 +1,103 @@
+package userservice.config;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+@Slf4j
+@EnableAsync
+@Configuration
+public class ExecutorConfig {
+    @Value("${photo.executor.pool-size:2}")
+    private int photoPoolSize;
+    @Value("${photo.executor.queue-capacity:100}")
+    private int photoQueueCapacity;
+    @Value("${qr-code.executor.pool-size:2}")
+    private int qrCodePoolSize;
+    @Value("${qr-code.executor.queue-capacity:100}")
+    private int qrCodeQueueCapacity;
+    @Value("${password.executor.pool-size:#{T(java.lang.Math).max(1, T(java.lang.Runtime).getRuntime().availableProcessors() / 2)}}")
+    private int passwordPoolSize;
+    @Value("${password.executor.queue-capacity:50}")
+    private int passwordQueueCapacity;
+    @Value("${password.executor.rejection-policy:abort}")
+    private String passwordRejectionPolicy;
+    @Value("${password.executor.rejection-wait:PT0.5S}")
+    private Duration passwordRejectionWait;
+    @Value("${user.import.parallelism:#{T(java.lang.Math).max(1, T(java.lang.Runtime).getRuntime().availableProcessors() / 2)}}")
+    private int importParallelism;
+
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor photoExecutor() {
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(photoPoolSize);
+        executor.setMaxPoolSize(photoPoolSize);
+        executor.setQueueCapacity(photoQueueCapacity);
+        executor.setThreadNamePrefix("photo-");
+        executor.setRejectedExecutionHandler((task, pool) -> log.warn("Photo queue is full. Thumbnails will be created on first request"));
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor qrCodeExecutor() {
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(qrCodePoolSize);
+        executor.setMaxPoolSize(qrCodePoolSize);
+        executor.setQueueCapacity(qrCodeQueueCapacity);
+        executor.setThreadNamePrefix("qr-code-");
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor passwordExecutor() {
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(passwordPoolSize);
+        executor.setMaxPoolSize(passwordPoolSize);
+        executor.setQueueCapacity(passwordQueueCapacity);
+        executor.setThreadNamePrefix("password-");
+        executor.setRejectedExecutionHandler(passwordRejectionHandler());
+        return executor;
+    }
+
+    // caller-runs is deliberately not offered: request threads would hash inline and bypass the pool size bound
+    private RejectedExecutionHandler passwordRejectionHandler() {
+        return switch (passwordRejectionPolicy.toLowerCase()) {
+            case "abort" -> new ThreadPoolExecutor.AbortPolicy();
+            case "wait" -> (task, pool) -> {
+                try {
+                    if(pool.isShutdown() || !pool.getQueue().offer(task, passwordRejectionWait.toNanos(), NANOSECONDS)) {
+                        throw new RejectedExecutionException("Password executor is saturated");
+                    }
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for the password executor", exception);
+                }
+            };
+            default -> throw new IllegalArgumentException("Unknown password.executor.rejection-policy " + passwordRejectionPolicy + ". Use abort or wait");
+        };
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool importPool() {
+        return new ForkJoinPool(importParallelism, pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("import-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+}
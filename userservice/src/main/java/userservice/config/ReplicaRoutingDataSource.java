@@ -0,0 +1,34 @@
+package userservice.config;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+    private static final ThreadLocal<Boolean> REPLICA_ALLOWED = ThreadLocal.withInitial(() -> false);
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    // Only readOnly transactions started inside onReplica go to the replica. Every other read stays on the primary
+    public static <T> T onReplica(Supplier<T> reader) {
+        if(REPLICA_ALLOWED.get()) { return reader.get(); }
+        REPLICA_ALLOWED.set(true);
+        try {
+            return reader.get();
+        } finally {
+            REPLICA_ALLOWED.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && REPLICA_ALLOWED.get() ? REPLICA : PRIMARY;
+    }
+}
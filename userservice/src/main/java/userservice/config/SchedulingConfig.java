@@ -0,0 +1,7 @@
+package userservice.config;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+@EnableScheduling
+@Configuration
+public class SchedulingConfig {
+}
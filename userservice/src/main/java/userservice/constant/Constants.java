@@ -1,5 +1,14 @@
 package userservice.constant;
+import java.time.Duration;
+import java.util.List;
 public class Constants {
     public static final String TASK_FLOWER_LLC = "Task Flower, LLC.";
     public static final String PHOTO_DIRECTORY = System.getProperty("user.home") + "/Downloads/uploads/";
+    public static final List<Integer> THUMBNAIL_SIZES = List.of(512, 128, 48);
+    public static final Duration PHOTO_CACHE_MAX_AGE = Duration.ofHours(1);
+    public static final Duration QR_CODE_CACHE_MAX_AGE = Duration.ofHours(1);
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final int IDEMPOTENCY_KEY_MAX_LENGTH = 64;
+    public static final List<String> IMPORT_COLUMNS = List.of("first_name", "last_name", "email", "username", "password");
+    public static final String TEXT_CSV_VALUE = "text/csv";
 }
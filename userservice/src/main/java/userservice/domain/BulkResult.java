@@ -0,0 +1,2 @@
+package userservice.domain;
+public record BulkResult(String userUuid, boolean updated, String message) {}
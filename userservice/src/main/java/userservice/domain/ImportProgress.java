@@ -0,0 +1,2 @@
+package userservice.domain;
+public record ImportProgress(long processed, long imported, long failed, boolean completed) {}
@@ -0,0 +1,2 @@
+package userservice.domain;
+public record ImportResult(long line, String email, String message) {}
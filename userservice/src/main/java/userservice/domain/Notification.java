@@ -2,6 +2,7 @@ package userservice.domain;
 import jakarta.validation.constraints.NotNull;
 import lombok.Builder;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.lang.Nullable;
 import org.springframework.util.ObjectUtils;
@@ -18,6 +19,7 @@ import static userservice.utils.UserUtils.randomUUUID;
 @Builder
 @Getter
 @Setter
+@NoArgsConstructor
 public class Notification implements Serializable {
     private Event payload;
     private Map<String, String> headers;
@@ -0,0 +1,2 @@
+package userservice.domain;
+public record PartitionChanges(int created, int dropped, long moved, long purged) {}
@@ -0,0 +1,3 @@
+package userservice.domain;
+import userservice.model.PasswordToken;
+public record PasswordReset(PasswordToken passwordToken, String firstName) {}
@@ -0,0 +1,6 @@
+package userservice.domain;
+import userservice.model.Device;
+import userservice.model.User;
+
+import java.util.List;
+public record Profile(User user, List<Device> devices) {}
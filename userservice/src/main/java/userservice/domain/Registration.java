@@ -0,0 +1,7 @@
+package userservice.domain;
+import static java.util.Objects.isNull;
+public record Registration(String requestHash, boolean succeeded, String message) {
+    public boolean pending() {
+        return !succeeded && isNull(message);
+    }
+}
@@ -0,0 +1,2 @@
+package userservice.domain;
+public record Role(Long roleId, String name, String authority) {}
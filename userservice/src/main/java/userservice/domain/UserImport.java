@@ -0,0 +1,2 @@
+package userservice.domain;
+public record UserImport(long line, String firstName, String lastName, String email, String username, String password, String token) {}
@@ -0,0 +1,2 @@
+package userservice.domain;
+public record UserSummary(String userUuid, String firstName, String lastName, String email, String username, String imageUrl) {}
@@ -0,0 +1,13 @@
+package userservice.dtorequest;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BatchRequest {
+    private List<String> userUuids;
+    private List<String> ticketUuids;
+}
@@ -0,0 +1,17 @@
+package userservice.dtorequest;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkAccountRequest {
+    @NotEmpty(message = "User uuids cannot be empty or null")
+    private List<String> userUuids;
+    private Boolean accountNonExpired;
+    private Boolean accountNonLocked;
+    private Boolean enabled;
+}
@@ -0,0 +1,16 @@
+package userservice.dtorequest;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkRoleRequest {
+    @NotEmpty(message = "User uuids cannot be empty or null")
+    private List<String> userUuids;
+    @NotEmpty(message = "Role cannot be empty or null")
+    private String role;
+}
@@ -1,4 +1,4 @@
 package userservice.enumeration;
 public enum EventType {
-    REGISTRATION, RESETPASSWORD, USER_CREATED, ACCOUNT_VERIFIED
-}
\ No newline at end of file
+    REGISTRATION, RESETPASSWORD, USER_CREATED, ACCOUNT_VERIFIED, USER_UPDATED
+}
@@ -1,20 +1,39 @@
 package userservice.event;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 import userservice.domain.Notification;
-import static org.springframework.kafka.support.KafkaHeaders.TOPIC;
+import userservice.exception.ApiException;
+import userservice.repository.OutboxRepository;
+
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static userservice.enumeration.EventType.USER_UPDATED;
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class ApiEventListener {
-    private final KafkaTemplate<String, Notification> kafkaTemplate;
-    private static final String NOTIFICATION_TOPIC = "NOTIFICATION_TOPIC";
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper mapper;
+    public static final String NOTIFICATION_TOPIC = "NOTIFICATION_TOPIC";
+    public static final String USER_TOPIC = "USER_TOPIC";
 
     @EventListener
     public void onApiEvent(Event event) {
-        var message = MessageBuilder.withPayload(new Notification(event)).setHeader(TOPIC, NOTIFICATION_TOPIC).build();
-        kafkaTemplate.send(message);
+        var topic = event.getEventType() == USER_UPDATED ? USER_TOPIC : NOTIFICATION_TOPIC;
+        try {
+            outboxRepository.saveEvent(topic, eventKey.apply(event), mapper.writeValueAsString(new Notification(event)));
+        } catch (JsonProcessingException exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
     }
-}
\ No newline at end of file
+
+    private final Function<Event, String> eventKey = event -> Stream.of("email", "userUuid", "userId")
+            .map(event.getData()::get).filter(Objects::nonNull).map(String::valueOf).findFirst().orElse(null);
+}
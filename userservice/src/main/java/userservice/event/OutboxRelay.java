@@ -0,0 +1,103 @@
+package userservice.event;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import userservice.domain.Notification;
+import userservice.model.OutboxEvent;
+import userservice.repository.OutboxRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Objects.requireNonNullElse;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.springframework.kafka.support.KafkaHeaders.KEY;
+import static org.springframework.kafka.support.KafkaHeaders.TOPIC;
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxRelay {
+    private final OutboxRepository outboxRepository;
+    private final KafkaTemplate<String, Notification> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper mapper;
+    private final MeterRegistry registry;
+    @Value("${outbox.relay.batch-size:100}")
+    private int batchSize;
+    @Value("${outbox.relay.send-timeout:PT10S}")
+    private Duration sendTimeout;
+    @Value("${outbox.relay.lease:PT1M}")
+    private Duration lease;
+
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval:PT1S}")
+    public void relay() {
+        try {
+            int relayed;
+            do {
+                var events = requireNonNullElse(transactionTemplate.execute(status -> outboxRepository.claimEvents(batchSize, lease)), List.<OutboxEvent>of());
+                relayed = relayBatch(events);
+            } while (relayed == batchSize);
+        } catch (Exception exception) {
+            log.error("Unable to relay outbox events: {}", exception.getMessage());
+        }
+    }
+
+    // Events sharing a key are sent one after another, and a failure stops the rest of that key so they are retried in order
+    private int relayBatch(List<OutboxEvent> events) {
+        var cancelled = new AtomicBoolean();
+        var chains = new LinkedHashMap<Object, CompletableFuture<?>>();
+        var sends = new LinkedHashMap<Long, CompletableFuture<?>>();
+        events.forEach(event -> {
+            var key = Objects.requireNonNullElse((Object) event.getEventKey(), event.getOutboxEventId());
+            var future = chains.getOrDefault(key, CompletableFuture.completedFuture(null))
+                    .thenCompose(previous -> cancelled.get() ? CompletableFuture.failedFuture(new CancellationException("Relay deadline passed")) : send(event));
+            chains.put(key, future);
+            sends.put(event.getOutboxEventId(), future);
+        });
+        var relayed = new ArrayList<Long>();
+        var unsent = new ArrayList<Long>();
+        var deadline = System.currentTimeMillis() + sendTimeout.toMillis();
+        sends.forEach((outboxEventId, future) -> {
+            try {
+                future.get(Math.max(deadline - System.currentTimeMillis(), 0), MILLISECONDS);
+                relayed.add(outboxEventId);
+            } catch (TimeoutException exception) {
+                cancelled.set(true);
+                log.warn("Outbox event {} was not acknowledged in time", outboxEventId);
+            } catch (Exception exception) {
+                unsent.add(outboxEventId);
+                log.error("Unable to relay outbox event {}: {}", outboxEventId, exception.getMessage());
+            }
+        });
+        cancelled.set(true);
+        if(!relayed.isEmpty()) { outboxRepository.deleteEvents(relayed); }
+        if(!unsent.isEmpty()) { outboxRepository.releaseEvents(unsent); }
+        return relayed.size() == events.size() ? events.size() : 0;
+    }
+
+    private CompletableFuture<?> send(OutboxEvent event) {
+        try {
+            var notification = mapper.readValue(event.getPayload(), Notification.class);
+            var sample = Timer.start(registry);
+            return kafkaTemplate.send(MessageBuilder.withPayload(notification).setHeader(TOPIC, event.getTopic()).setHeader(KEY, event.getEventKey()).build())
+                    .whenComplete((result, exception) -> sample.stop(registry.timer("kafka.producer.send", "topic", event.getTopic(), "result", exception == null ? "success" : "failure")));
+        } catch (Exception exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package userservice.event;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+import userservice.cache.TokenFilter;
+import userservice.domain.Notification;
+
+import java.util.Map;
+
+import static userservice.event.ApiEventListener.NOTIFICATION_TOPIC;
+@Component
+@RequiredArgsConstructor
+public class TokenFilterListener implements ConsumerSeekAware {
+    private final TokenFilter tokenFilter;
+
+    @KafkaListener(topics = NOTIFICATION_TOPIC, groupId = "userservice-tokens-#{T(java.util.UUID).randomUUID()}")
+    public void onNotification(Notification notification) {
+        if(notification.getPayload().getData().get("token") instanceof String token) { tokenFilter.add(token); }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        tokenFilter.onListening();
+    }
+}
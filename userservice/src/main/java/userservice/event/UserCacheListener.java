@@ -0,0 +1,28 @@
+package userservice.event;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import userservice.cache.RecentWrites;
+import userservice.cache.UserCache;
+import userservice.domain.Notification;
+
+import static userservice.event.ApiEventListener.USER_TOPIC;
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserCacheListener {
+    private final UserCache userCache;
+    private final RecentWrites recentWrites;
+
+    @KafkaListener(topics = USER_TOPIC, groupId = "userservice-cache-#{T(java.util.UUID).randomUUID()}")
+    public void onUserUpdated(Notification notification) {
+        var data = notification.getPayload().getData();
+        log.debug("Evicting cached user: {}", data);
+        if(data.get("userUuid") instanceof String userUuid) {
+            recentWrites.record(userUuid);
+            userCache.invalidate(userUuid);
+        }
+        if(data.get("userId") instanceof Number userId) { userCache.invalidate(userId.longValue()); }
+    }
+}
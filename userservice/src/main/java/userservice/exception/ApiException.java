@@ -1,4 +1,8 @@
 package userservice.exception;
 public class ApiException extends RuntimeException {
-    public ApiException(String message) { super(message); }
+    public static final ApiException GENERIC_ERROR = new ApiException("An error occurred. Please try again.");
+    public static final ApiException USER_NOT_FOUND = new ApiException("User not found. Please try again.");
+    public static final ApiException INVALID_LINK = new ApiException("Invalid link. Please try again.");
+
+    public ApiException(String message) { super(message, null, false, false); }
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.CredentialsExpiredException;
@@ -68,10 +69,16 @@ public class HandleException extends ResponseEntityExceptionHandler implements E
 
     @ExceptionHandler(ApiException.class)
     public ResponseEntity<Response> apiException(ApiException exception) {
-        log.error(String.format("ApiException: %s", exception.getMessage()));
+        log.debug("ApiException: {}", exception.getMessage());
         return new ResponseEntity<>(handleErrorResponse(exception.getMessage(), getRootCauseMessage(exception), request, BAD_REQUEST), BAD_REQUEST);
     }
 
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Response> taskRejectedException(TaskRejectedException exception) {
+        log.error(String.format("TaskRejectedException: %s", exception.getMessage()));
+        return new ResponseEntity<>(handleErrorResponse("Server is busy. Please try again shortly.", getRootCauseMessage(exception), request, SERVICE_UNAVAILABLE), SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(UnrecognizedPropertyException.class)
     public ResponseEntity<Response> unrecognizedPropertyException(UnrecognizedPropertyException exception) {
         log.error(String.format("UnrecognizedPropertyException: %s", exception.getMessage()));
@@ -0,0 +1,107 @@
+package userservice.metrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.joining;
+@Slf4j
+@Component
+public class RepositoryMetrics implements MethodInterceptor {
+    private final MeterRegistry registry;
+    private final Duration slowThreshold;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, SlowOperation> slowOperations = new ConcurrentHashMap<>();
+
+    public RepositoryMetrics(MeterRegistry registry, @Value("${repository.metrics.slow-threshold:PT0.2S}") Duration slowThreshold) {
+        this.registry = registry;
+        this.slowThreshold = slowThreshold;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        var repository = ClassUtils.getUserClass(invocation.getThis()).getSimpleName();
+        var operation = invocation.getMethod().getName();
+        var start = System.nanoTime();
+        var outcome = "success";
+        try {
+            return invocation.proceed();
+        } catch (Throwable throwable) {
+            outcome = "error";
+            registry.counter("repository.errors", "repository", repository, "operation", operation, "exception", throwable.getClass().getSimpleName()).increment();
+            throw throwable;
+        } finally {
+            var elapsed = System.nanoTime() - start;
+            timer(repository, operation, outcome).record(elapsed, NANOSECONDS);
+            if(elapsed >= slowThreshold.toNanos()) {
+                var parameters = shape(invocation.getArguments());
+                slowOperations.computeIfAbsent(repository + "." + operation, SlowOperation::new).record(elapsed, parameters);
+                log.warn("Slow repository operation {}.{}{} took {} ms", repository, operation, parameters, Duration.ofNanos(elapsed).toMillis());
+            }
+        }
+    }
+
+    public List<SlowOperationStats> getSlowOperations(int limit) {
+        return slowOperations.values().stream().map(SlowOperation::stats)
+                .sorted(Comparator.comparingDouble(SlowOperationStats::maxMillis).reversed()).limit(limit).toList();
+    }
+
+    private Timer timer(String repository, String operation, String outcome) {
+        return timers.computeIfAbsent(repository + "." + operation + "." + outcome, key -> Timer.builder("repository.operation")
+                .tags("repository", repository, "operation", operation, "outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry));
+    }
+
+    private String shape(Object[] arguments) {
+        return Arrays.stream(arguments).map(argument -> switch (argument) {
+            case null -> "null";
+            case List<?> list -> "List[" + list.size() + "]";
+            case Collection<?> collection -> "Collection[" + collection.size() + "]";
+            case byte[] bytes -> "byte[" + bytes.length + "]";
+            case Object[] array -> argument.getClass().getComponentType().getSimpleName() + "[" + array.length + "]";
+            default -> argument.getClass().getSimpleName();
+        }).collect(joining(", ", "(", ")"));
+    }
+
+    public record SlowOperationStats(String operation, long count, double maxMillis, double meanMillis, String lastParameters) {}
+
+    private static class SlowOperation {
+        private final String operation;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile String lastParameters;
+
+        private SlowOperation(String operation) {
+            this.operation = operation;
+        }
+
+        private void record(long elapsed, String parameters) {
+            count.increment();
+            totalNanos.add(elapsed);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+            lastParameters = parameters;
+        }
+
+        private SlowOperationStats stats() {
+            var calls = Math.max(count.sum(), 1);
+            return new SlowOperationStats(operation, count.sum(), maxNanos.get() / 1e6, totalNanos.sum() / 1e6 / calls, lastParameters);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package userservice.metrics;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+@Component
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+    private static final String REPOSITORY_PACKAGE = "userservice.repository.implementation";
+    private final MethodInterceptor interceptor;
+
+    public RepositoryMetricsPostProcessor(ObjectProvider<RepositoryMetrics> repositoryMetrics) {
+        this.interceptor = invocation -> repositoryMetrics.getObject().invoke(invocation);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if(!REPOSITORY_PACKAGE.equals(AopUtils.getTargetClass(bean).getPackageName())) { return bean; }
+        if(bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+        var proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,21 @@
+package userservice.metrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+@Component
+@Endpoint(id = "slowqueries")
+@RequiredArgsConstructor
+public class SlowQueryEndpoint {
+    private final RepositoryMetrics repositoryMetrics;
+    @Value("${repository.metrics.top-size:20}")
+    private int topSize;
+
+    @ReadOperation
+    public List<RepositoryMetrics.SlowOperationStats> slowQueries() {
+        return repositoryMetrics.getSlowOperations(topSize);
+    }
+}
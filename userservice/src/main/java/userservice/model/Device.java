@@ -17,6 +17,7 @@ public class Device {
     private String device;
     private String client;
     private String ipAddress;
+    private Long loginCount;
     private String createdAt;
     private String updatedAt;
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package userservice.model;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+@Getter
+@Setter
+@ToString
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxEvent {
+    private Long outboxEventId;
+    private String topic;
+    private String eventKey;
+    private String payload;
+    private String createdAt;
+}
@@ -0,0 +1,23 @@
+package userservice.query;
+public class OutboxQuery {
+    public static final String INSERT_OUTBOX_EVENT_QUERY =
+                               """
+                               INSERT INTO outbox_events (topic, event_key, payload) VALUES (:topic, :eventKey, :payload)
+                               """;
+    public static final String LOCK_OUTBOX_CLAIMS_QUERY =
+                               """
+                               SELECT PG_ADVISORY_XACT_LOCK(HASHTEXT('outbox_events'))
+                               """;
+    public static final String CLAIM_OUTBOX_EVENTS_QUERY =
+                               """
+                               UPDATE outbox_events SET claimed_until = NOW() + MAKE_INTERVAL(secs => :leaseSeconds) WHERE outbox_event_id IN (SELECT o.outbox_event_id FROM outbox_events o WHERE (o.claimed_until IS NULL OR o.claimed_until < NOW()) AND NOT EXISTS (SELECT 1 FROM outbox_events e WHERE e.event_key = o.event_key AND e.outbox_event_id < o.outbox_event_id AND e.claimed_until >= NOW()) ORDER BY o.outbox_event_id LIMIT :batchSize FOR UPDATE SKIP LOCKED) RETURNING outbox_event_id, topic, event_key, payload, created_at
+                               """;
+    public static final String RELEASE_OUTBOX_EVENTS_QUERY =
+                               """
+                               UPDATE outbox_events SET claimed_until = NULL WHERE outbox_event_id IN (:outboxEventIds)
+                               """;
+    public static final String DELETE_OUTBOX_EVENTS_QUERY =
+                               """
+                               DELETE FROM outbox_events WHERE outbox_event_id IN (:outboxEventIds)
+                               """;
+}
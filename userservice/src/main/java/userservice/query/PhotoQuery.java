@@ -0,0 +1,15 @@
+package userservice.query;
+public class PhotoQuery {
+    public static final String ACQUIRE_PHOTO_QUERY =
+                               """
+                               INSERT INTO photos (filename) VALUES (:filename) ON CONFLICT (filename) DO UPDATE SET reference_count = photos.reference_count + 1, updated_at = NOW() RETURNING reference_count
+                               """;
+    public static final String RELEASE_PHOTO_QUERY =
+                               """
+                               UPDATE photos SET reference_count = reference_count - 1, updated_at = NOW() WHERE filename = :filename RETURNING reference_count
+                               """;
+    public static final String DELETE_PHOTO_QUERY =
+                               """
+                               DELETE FROM photos WHERE filename = :filename AND reference_count <= 0
+                               """;
+}
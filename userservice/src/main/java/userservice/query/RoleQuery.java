@@ -0,0 +1,7 @@
+package userservice.query;
+public class RoleQuery {
+    public static final String SELECT_ROLES_QUERY =
+                               """
+                               SELECT role_id, name, authority FROM roles
+                               """;
+}
@@ -2,50 +2,93 @@ package userservice.query;
 public class UserQuery {
     public static final String SELECT_USER_BY_USER_UUID_QUERY =
                                """
-                               SELECT r.name AS role, r.authority AS authorities, u.qr_code_image_uri, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_uuid = :userUuid
+                               SELECT ur.role_id, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id WHERE u.user_uuid = :userUuid
                                """;
     public static final String SELECT_USER_BY_USER_ID_QUERY =
                                """
-                               SELECT r.name AS role, r.authority AS authorities, u.qr_code_image_uri, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.user_id = :userId
+                               SELECT ur.role_id, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id WHERE u.user_id = :userId
                                """;
     public static final String SELECT_USER_BY_EMAIL_QUERY =
                                """
-                               SELECT r.name AS role, r.authority AS authorities, u.qr_code_image_uri, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id WHERE u.email = :email
+                               SELECT ur.role_id, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id WHERE u.email = :email
                                """;
     public static final String UPDATE_USER_FUNCTION =
                                """                               
                                """;
-    public static final String CREATE_USER_STORED_PROCEDURE =
+    public static final String CREATE_USER_FUNCTION =
                                """
-                               CALL create_user(:userUuid, :firstName, :lastName, :email, :username, :password, :credentialUuid, :token, :memberId)
+                               SELECT create_user(:userUuid, :firstName, :lastName, :email, :username, :password, :credentialUuid, :token)
                                """;
-    public static final String SELECT_ACCOUNT_TOKEN_QUERY =
+    public static final String VERIFY_ACCOUNT_FUNCTION =
                                """
-                               SELECT account_token_id, token, user_id, (created_at + '24 HOURS') < NOW() AS expired, created_at, updated_at FROM account_tokens WHERE token = :token
+                               SELECT * FROM verify_account(:token)
                                """;
-    public static final String SELECT_PASSWORD_TOKEN_QUERY =
+    public static final String RESET_PASSWORD_FUNCTION =
                                """
-                               SELECT password_token_id, token, user_id, (created_at + '24 HOURS') < NOW() AS expired, created_at, updated_at FROM password_tokens WHERE token = :token
+                               SELECT * FROM reset_password(:email, :token)
+                               """;
+    public static final String DO_RESET_PASSWORD_FUNCTION =
+                               """
+                               SELECT * FROM do_reset_password(:userUuid, :token, :password)
+                               """;
+    public static final String SELECT_USER_EXISTS_QUERY =
+                               """
+                               SELECT EXISTS (SELECT 1 FROM users WHERE email = :email OR username = :username)
+                               """;
+    public static final String SELECT_USERS_IN_USE_QUERY =
+                               """
+                               SELECT email, username FROM users WHERE email IN (:emails) OR username IN (:usernames)
+                               """;
+    public static final String CREATE_USER_IMPORTS_TABLE_QUERY =
+                               """
+                               CREATE TEMP TABLE user_imports (line BIGINT NOT NULL, user_uuid VARCHAR(40) NOT NULL, first_name VARCHAR(25) NOT NULL, last_name VARCHAR(25) NOT NULL, email VARCHAR(40) NOT NULL, username VARCHAR(25) NOT NULL, password VARCHAR(255) NOT NULL, credential_uuid VARCHAR(40) NOT NULL, token VARCHAR(40) NOT NULL) ON COMMIT DROP
+                               """;
+    public static final String COPY_USER_IMPORTS_QUERY =
+                               """
+                               COPY user_imports (line, user_uuid, first_name, last_name, email, username, password, credential_uuid, token) FROM STDIN WITH (FORMAT csv)
                                """;
-    public static final String DELETE_ACCOUNT_TOKEN_QUERY =
+    public static final String INSERT_USER_IMPORTS_QUERY =
                                """
-                               DELETE FROM account_tokens WHERE token = :token
+                               WITH inserted AS (
+                                   INSERT INTO users (user_uuid, first_name, last_name, email, username, member_id) SELECT ui.user_uuid, ui.first_name, ui.last_name, ui.email, ui.username, next_member_id() FROM user_imports ui ORDER BY ui.line ON CONFLICT DO NOTHING RETURNING users.user_id, users.user_uuid
+                               ), imported AS (
+                                   SELECT i.user_id, ui.line, ui.password, ui.credential_uuid, ui.token FROM inserted i JOIN user_imports ui ON ui.user_uuid = i.user_uuid
+                               ), inserted_credentials AS (
+                                   INSERT INTO credentials (credential_uuid, user_id, password) SELECT credential_uuid, user_id, password FROM imported
+                               ), inserted_roles AS (
+                                   INSERT INTO user_roles (user_id, role_id) SELECT user_id, :roleId FROM imported
+                               ), inserted_tokens AS (
+                                   INSERT INTO account_tokens (user_id, token) SELECT user_id, token FROM imported
+                               )
+                               SELECT line FROM imported
                                """;
-    public static final String SELECT_PASSWORD_TOKEN_BY_USER_ID_QUERY =
+    public static final String SELECT_REGISTRATION_QUERY =
                                """
-                               SELECT password_token_id, token, user_id, (created_at + '24 HOURS') < NOW() AS expired, created_at, updated_at FROM password_tokens WHERE user_id = :userId
+                               SELECT request_hash, succeeded, message FROM registrations WHERE idempotency_key = :idempotencyKey
                                """;
-    public static final String DELETE_PASSWORD_TOKEN_QUERY =
+    public static final String INSERT_REGISTRATION_QUERY =
                                """
-                               DELETE FROM password_tokens WHERE user_id = :userId
+                               INSERT INTO registrations (idempotency_key, request_hash) VALUES (:idempotencyKey, :requestHash) ON CONFLICT (idempotency_key) DO NOTHING
                                """;
-    public static final String UPDATE_ACCOUNT_SETTINGS_QUERY =
+    public static final String UPDATE_REGISTRATION_QUERY =
                                """
-                               UPDATE users SET enabled = TRUE, account_non_expired = TRUE, account_non_locked = TRUE WHERE user_id = :userId
+                               UPDATE registrations SET succeeded = :succeeded, message = :message WHERE idempotency_key = :idempotencyKey
+                               """;
+    public static final String DELETE_PENDING_REGISTRATION_QUERY =
+                               """
+                               DELETE FROM registrations WHERE idempotency_key = :idempotencyKey AND succeeded = FALSE AND message IS NULL
+                               """;
+    public static final String DELETE_EXPIRED_REGISTRATIONS_QUERY =
+                               """
+                               DELETE FROM registrations WHERE idempotency_key IN (SELECT idempotency_key FROM registrations WHERE created_at < NOW() - INTERVAL '24 HOURS' ORDER BY created_at LIMIT :batchSize FOR UPDATE SKIP LOCKED)
+                               """;
+    public static final String SELECT_PASSWORD_TOKEN_QUERY =
+                               """
+                               SELECT password_token_id, token, user_id, (created_at + '24 HOURS') < NOW() AS expired, created_at, updated_at FROM password_tokens WHERE token = :token
                                """;
     public static final String ENABLE_USER_MFA_FUNCTION =
                                """
-                               SELECT * FROM enable_user_mfa(:userUuid, :qrCodeSecret, :qrCodeImageUri)
+                               SELECT * FROM enable_user_mfa(:userUuid, :qrCodeSecret)
                                """;
     public static final String DISABLE_USER_MFA_FUNCTION =
                                """
@@ -53,7 +96,7 @@ public class UserQuery {
                                """;
     public static final String UPDATE_USER_IMAGE_URL_QUERY =
                                """
-                               UPDATE users SET image_url = :imageUrl WHERE user_uuid = :userUuid
+                               UPDATE users SET image_url = :imageUrl FROM (SELECT user_id, image_url FROM users WHERE user_uuid = :userUuid FOR UPDATE) previous WHERE users.user_id = previous.user_id RETURNING previous.image_url
                                """;
     public static final String TOGGLE_ACCOUNT_EXPIRED_FUNCTION =
                                """
@@ -79,24 +122,76 @@ public class UserQuery {
                                """
                                SELECT * FROM update_user_role(:userUuid, :role)
                                """;
+    public static final String UPDATE_ACCOUNT_FLAGS_QUERY =
+                               """
+                               UPDATE users SET account_non_expired = COALESCE(CAST(:accountNonExpired AS BOOLEAN), account_non_expired), account_non_locked = COALESCE(CAST(:accountNonLocked AS BOOLEAN), account_non_locked), enabled = COALESCE(CAST(:enabled AS BOOLEAN), enabled), updated_at = NOW() WHERE user_uuid IN (:userUuids) RETURNING user_uuid
+                               """;
+    public static final String UPDATE_USER_ROLES_QUERY =
+                               """
+                               UPDATE user_roles SET role_id = :roleId FROM users u WHERE u.user_id = user_roles.user_id AND u.user_uuid IN (:userUuids) RETURNING u.user_uuid
+                               """;
     public static final String SELECT_USERS_QUERY =
                                """
-                               SELECT r.name AS role, r.authority AS authorities, u.qr_code_image_uri, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id JOIN roles r ON r.role_id = ur.role_id LIMIT 100
+                               SELECT ur.role_id, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id WHERE u.user_id > :cursor ORDER BY u.user_id LIMIT :size
+                               """;
+    public static final String SEARCH_USERS_QUERY =
+                               """
+                               SELECT u.user_uuid, u.first_name, u.last_name, u.email, u.username, u.image_url FROM users u WHERE (u.first_name || ' ' || u.last_name || ' ' || u.email || ' ' || u.username) ILIKE :pattern OR :query <% (u.first_name || ' ' || u.last_name || ' ' || u.email || ' ' || u.username) ORDER BY word_similarity(:query, u.first_name || ' ' || u.last_name || ' ' || u.email || ' ' || u.username) DESC, u.user_id LIMIT :size OFFSET :offset
+                               """;
+    public static final String SELECT_USERS_STREAM_QUERY =
+                               """
+                               SELECT ur.role_id, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id ORDER BY u.user_id
                                """;
     public static final String SELECT_TICKET_ASSIGNEE_QUERY =
                                """
                                SELECT u.user_id, u.user_uuid, u.first_name, u.last_name, u.email, u.image_url FROM users u JOIN tickets t ON u.user_id = t.assignee_id WHERE t.ticket_uuid = :ticketUuid
                                """;
+    public static final String SELECT_USERS_BY_USER_UUIDS_QUERY =
+                               """
+                               SELECT ur.role_id, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address FROM users u JOIN user_roles ur ON ur.user_id = u.user_id WHERE u.user_uuid = ANY(:userUuids)
+                               """;
+    public static final String SELECT_TICKET_ASSIGNEES_QUERY =
+                               """
+                               SELECT t.ticket_uuid, u.user_id, u.user_uuid, u.first_name, u.last_name, u.email, u.image_url FROM users u JOIN tickets t ON u.user_id = t.assignee_id WHERE t.ticket_uuid = ANY(:ticketUuids)
+                               """;
     public static final String SELECT_USER_CREDENTIAL_QUERY =
                                """
                                SELECT c.credential_id, c.credential_uuid, c.password, c.created_at, c.updated_at FROM credentials c JOIN users u ON c.user_id = u.user_id WHERE u.user_uuid = :userUuid
                                """;
     public static final String SELECT_DEVICES_QUERY =
                                """
-                               SELECT * FROM devices WHERE user_id = (SELECT user_id FROM users WHERE user_uuid = :userUuid) ORDER BY created_at DESC LIMIT 15
+                               SELECT ds.device_summary_id AS device_id, ds.user_id, ds.device, ds.client, ds.ip_address, ds.login_count, ds.first_seen AS created_at, ds.last_seen AS updated_at FROM device_summaries ds WHERE ds.user_id = (SELECT user_id FROM users WHERE user_uuid = :userUuid) ORDER BY ds.last_seen DESC LIMIT 15
+                               """;
+    public static final String SELECT_PROFILE_QUERY =
+                               """
+                               SELECT ur.role_id, u.member_id, u.account_non_expired, u.account_non_locked, u.created_at, u.email, u.username, u.enabled, u.first_name, u.user_id, u.image_url, u.last_login, u.last_name, u.mfa, u.updated_at, u.user_uuid, u.bio, u.phone, u.address, COALESCE(d.devices, '[]') AS devices FROM users u JOIN user_roles ur ON ur.user_id = u.user_id LEFT JOIN LATERAL (SELECT JSON_AGG(JSON_BUILD_OBJECT('deviceId', ld.device_summary_id, 'userId', ld.user_id, 'device', ld.device, 'client', ld.client, 'ipAddress', ld.ip_address, 'loginCount', ld.login_count, 'createdAt', ld.first_seen::TEXT, 'updatedAt', ld.last_seen::TEXT) ORDER BY ld.last_seen DESC) AS devices FROM (SELECT * FROM device_summaries WHERE device_summaries.user_id = u.user_id ORDER BY device_summaries.last_seen DESC LIMIT 15) ld) d ON TRUE WHERE u.user_uuid = :userUuid
+                               """;
+    public static final String SELECT_QR_CODE_IMAGE_QUERY =
+                               """
+                               SELECT q.qr_code_image FROM mfa_qr_codes q JOIN users u ON u.user_id = q.user_id WHERE u.user_uuid = :userUuid
+                               """;
+    public static final String SELECT_QR_CODE_SECRET_QUERY =
+                               """
+                               SELECT qr_code_secret FROM users WHERE user_uuid = :userUuid AND mfa = TRUE
+                               """;
+    public static final String INSERT_QR_CODE_IMAGE_QUERY =
+                               """
+                               INSERT INTO mfa_qr_codes (user_id, qr_code_image) SELECT u.user_id, :qrCodeImage FROM users u WHERE u.user_uuid = :userUuid AND u.qr_code_secret = :qrCodeSecret ON CONFLICT (user_id) DO NOTHING
+                               """;
+    public static final String SELECT_TOKENS_STREAM_QUERY =
+                               """
+                               SELECT token FROM account_tokens UNION ALL SELECT token FROM password_tokens
+                               """;
+    public static final String DELETE_EXPIRED_ACCOUNT_TOKENS_QUERY =
+                               """
+                               DELETE FROM account_tokens WHERE account_token_id IN (SELECT account_token_id FROM account_tokens WHERE created_at < NOW() - INTERVAL '24 HOURS' ORDER BY created_at LIMIT :batchSize FOR UPDATE SKIP LOCKED)
+                               """;
+    public static final String DELETE_EXPIRED_PASSWORD_TOKENS_QUERY =
+                               """
+                               DELETE FROM password_tokens WHERE password_token_id IN (SELECT password_token_id FROM password_tokens WHERE created_at < NOW() - INTERVAL '24 HOURS' ORDER BY created_at LIMIT :batchSize FOR UPDATE SKIP LOCKED)
                                """;
-    public static final String CREATE_PASSWORD_TOKEN_QUERY =
+    public static final String MAINTAIN_DEVICE_PARTITIONS_FUNCTION =
                                """
-                               INSERT INTO password_tokens (user_id, token) VALUES (:userId, :token)
+                               SELECT * FROM maintain_device_partitions(:monthsAhead, :retentionMonths)
                                """;
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package userservice.repository;
+import userservice.model.OutboxEvent;
+
+import java.time.Duration;
+import java.util.List;
+public interface OutboxRepository {
+    void saveEvent(String topic, String eventKey, String payload);
+    List<OutboxEvent> claimEvents(int batchSize, Duration lease);
+    void releaseEvents(List<Long> outboxEventIds);
+    void deleteEvents(List<Long> outboxEventIds);
+}
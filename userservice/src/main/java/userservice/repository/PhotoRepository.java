@@ -0,0 +1,7 @@
+package userservice.repository;
+import java.util.Optional;
+public interface PhotoRepository {
+    int acquirePhoto(String filename);
+    Optional<Integer> releasePhoto(String filename);
+    boolean deletePhoto(String filename);
+}
@@ -0,0 +1,7 @@
+package userservice.repository;
+import userservice.domain.Role;
+
+import java.util.List;
+public interface RoleRepository {
+    List<Role> getRoles();
+}
@@ -1,36 +1,70 @@
 package userservice.repository;
+import userservice.domain.PartitionChanges;
+import userservice.domain.PasswordReset;
+import userservice.domain.Profile;
+import userservice.domain.Registration;
+import userservice.domain.UserImport;
+import userservice.domain.UserSummary;
 import userservice.model.*;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 public interface UserRepository {
+    Optional<User> findUserByEmail(String email);
     User getUserByEmail(String email);
+    Optional<User> findUserByUuid(String userUuid);
     User getUserByUuid(String userUuid);
+    Optional<User> findUserById(Long userId);
     User getUserById(Long userId);
     User updateUser(String userUuid, String firstName, String lastName, String email, String phone, String bio, String address);
     String createUser(String firstName, String lastName, String email, String username, String password);
-    AccountToken getAccountToken(String token);
+    boolean userExists(String email, String username);
+    Set<String> getUsersInUse(Collection<String> emails, Collection<String> usernames);
+    List<Long> importUsers(List<UserImport> users);
+    Optional<Registration> getRegistration(String idempotencyKey);
+    boolean claimRegistration(String idempotencyKey, String requestHash);
+    void completeRegistration(String idempotencyKey, Registration registration);
+    void releaseRegistration(String idempotencyKey);
+    int deleteExpiredRegistrations(int batchSize);
+    Optional<AccountToken> verifyAccount(String token);
     User verifyPasswordToken(String token);
     User enableMfa(String userUuid);
     User disableMfa(String userUuid);
+    Optional<byte[]> getQrCodeImage(String userUuid);
+    String getQrCodeSecret(String userUuid);
+    void saveQrCodeImage(String userUuid, String qrCodeSecret, byte[] qrCodeImage);
     User toggleAccountExpired(String userUuid);
     User toggleAccountLocked(String userUuid);
     User toggleAccountEnabled(String userUuid);
     User toggleCredentialsExpired(String userUuid);
     void updatePassword(String userUuid, String encodedPassword);
     User updateRole(String userUuid, String role);
-    void resetPassword(String email);
-    void doResetPassword(String userUuid, String token, String password, String confirmPassword);
-    List<User> getUsers();
+    List<String> updateAccountFlags(List<String> userUuids, Boolean accountNonExpired, Boolean accountNonLocked, Boolean enabled);
+    List<String> updateRoles(List<String> userUuids, String role);
+    PasswordReset resetPassword(String email, String token);
+    Optional<PasswordToken> doResetPassword(String userUuid, String token, String encodedPassword);
+    List<User> getUsers(Long cursor, int size);
+    void streamUsers(int fetchSize, Consumer<User> consumer);
+    List<UserSummary> searchUsers(String query, int page, int size);
     User getAssignee(String ticketUuid);
+    Map<String, User> getUsersByUuids(List<String> userUuids);
+    Map<String, User> getAssignees(List<String> ticketUuids);
+    Optional<Credential> findCredential(String userUuid);
     Credential getCredential(String userUuid);
     List<Device> getDevices(String userUuid);
-    void deleteAccountToken(String token);
-    void updateAccountSettings(Long userId);
+    Optional<Profile> findProfile(String userUuid);
+    Profile getProfile(String userUuid);
+    Optional<PasswordToken> findPasswordToken(String token);
     PasswordToken getPasswordToken(String token);
-    PasswordToken getPasswordToken(Long userId);
     void deletePasswordToken(String token);
-    void deletePasswordToken(Long userId);
-    void updateImageUrl(String userUuid, String imageUrl);
+    void streamTokens(int fetchSize, Consumer<String> consumer);
+    int deleteExpiredAccountTokens(int batchSize);
+    int deleteExpiredPasswordTokens(int batchSize);
+    PartitionChanges maintainDevicePartitions(int monthsAhead, int retentionMonths);
+    String updateImageUrl(String userUuid, String imageUrl);
     String getPassword(String userUuid);
-    String createPasswordToken(Long userId);
 }
\ No newline at end of file
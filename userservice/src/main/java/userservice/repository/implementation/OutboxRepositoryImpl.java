@@ -0,0 +1,68 @@
+package userservice.repository.implementation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Service;
+import userservice.exception.ApiException;
+import userservice.model.OutboxEvent;
+import userservice.repository.OutboxRepository;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static java.sql.Types.VARCHAR;
+import static userservice.query.OutboxQuery.*;
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxRepositoryImpl implements OutboxRepository {
+    private final JdbcClient jdbc;
+
+    @Override
+    public void saveEvent(String topic, String eventKey, String payload) {
+        try {
+            jdbc.sql(INSERT_OUTBOX_EVENT_QUERY).paramSource(new MapSqlParameterSource()
+                    .addValue("topic", topic, VARCHAR)
+                    .addValue("eventKey", eventKey, VARCHAR)
+                    .addValue("payload", payload, VARCHAR)).update();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public List<OutboxEvent> claimEvents(int batchSize, Duration lease) {
+        try {
+            jdbc.sql(LOCK_OUTBOX_CLAIMS_QUERY).query().listOfRows();
+            return jdbc.sql(CLAIM_OUTBOX_EVENTS_QUERY).params(Map.of("batchSize", batchSize, "leaseSeconds", lease.toSeconds())).query(OutboxEvent.class).list()
+                    .stream().sorted(Comparator.comparing(OutboxEvent::getOutboxEventId)).toList();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public void releaseEvents(List<Long> outboxEventIds) {
+        try {
+            jdbc.sql(RELEASE_OUTBOX_EVENTS_QUERY).param("outboxEventIds", outboxEventIds).update();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public void deleteEvents(List<Long> outboxEventIds) {
+        try {
+            jdbc.sql(DELETE_OUTBOX_EVENTS_QUERY).param("outboxEventIds", outboxEventIds).update();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package userservice.repository.implementation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Service;
+import userservice.exception.ApiException;
+import userservice.repository.PhotoRepository;
+
+import java.util.Optional;
+
+import static userservice.query.PhotoQuery.*;
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PhotoRepositoryImpl implements PhotoRepository {
+    private final JdbcClient jdbc;
+
+    @Override
+    public int acquirePhoto(String filename) {
+        try {
+            return jdbc.sql(ACQUIRE_PHOTO_QUERY).param("filename", filename).query(Integer.class).single();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw new ApiException("Unable to save image");
+        }
+    }
+
+    @Override
+    public Optional<Integer> releasePhoto(String filename) {
+        try {
+            return jdbc.sql(RELEASE_PHOTO_QUERY).param("filename", filename).query(Integer.class).optional();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public boolean deletePhoto(String filename) {
+        try {
+            return jdbc.sql(DELETE_PHOTO_QUERY).param("filename", filename).update() > 0;
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+}
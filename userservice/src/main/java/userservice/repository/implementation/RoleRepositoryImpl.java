@@ -0,0 +1,28 @@
+package userservice.repository.implementation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Service;
+import userservice.domain.Role;
+import userservice.exception.ApiException;
+import userservice.repository.RoleRepository;
+
+import java.util.List;
+
+import static userservice.query.RoleQuery.SELECT_ROLES_QUERY;
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoleRepositoryImpl implements RoleRepository {
+    private final JdbcClient jdbc;
+
+    @Override
+    public List<Role> getRoles() {
+        try {
+            return jdbc.sql(SELECT_ROLES_QUERY).query((resultSet, rowNum) -> new Role(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3))).list();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+}
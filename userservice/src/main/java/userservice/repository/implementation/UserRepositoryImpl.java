@@ -1,20 +1,47 @@
 package userservice.repository.implementation;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.DuplicateKeyException;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import userservice.cache.RoleCache;
+import userservice.domain.PartitionChanges;
+import userservice.domain.PasswordReset;
+import userservice.domain.Profile;
+import userservice.domain.Registration;
+import userservice.domain.Role;
+import userservice.domain.UserImport;
+import userservice.domain.UserSummary;
 import userservice.exception.ApiException;
 import userservice.model.*;
 import userservice.repository.UserRepository;
-
+import userservice.repository.mapper.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 
 
+import static java.sql.Types.BOOLEAN;
 import static java.sql.Types.VARCHAR;
 import static java.util.Map.of;
 import static userservice.query.UserQuery.*;
@@ -24,55 +51,66 @@ import static userservice.utils.UserUtils.*;
 @RequiredArgsConstructor
 public class UserRepositoryImpl implements UserRepository {
     private final JdbcClient jdbc;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper mapper;
+    private final RoleCache roleCache;
     @Override
-    public User getUserByEmail(String email) {
+    public Optional<User> findUserByEmail(String email) {
         try {
-            return jdbc.sql(SELECT_USER_BY_EMAIL_QUERY).param("email", email).query(User.class).single();
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException(String.format("No user found user email %s", email));
+            return jdbc.sql(SELECT_USER_BY_EMAIL_QUERY).param("email", email).query(new UserRowMapper(roleCache::getRole)).optional();
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public User getUserByUuid(String userUuid) {
+    public User getUserByEmail(String email) {
+        return findUserByEmail(email).orElseThrow(() -> new ApiException(String.format("No user found user email %s", email)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findUserByUuid(String userUuid) {
         try {
-            return jdbc.sql(SELECT_USER_BY_USER_UUID_QUERY).param("userUuid", userUuid).query(User.class).single();
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException(String.format("No user found user UUID %s", userUuid));
+            return jdbc.sql(SELECT_USER_BY_USER_UUID_QUERY).param("userUuid", userUuid).query(new UserRowMapper(roleCache::getRole)).optional();
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public User getUserById(Long userId) {
+    @Transactional(readOnly = true)
+    public User getUserByUuid(String userUuid) {
+        return findUserByUuid(userUuid).orElseThrow(() -> new ApiException(String.format("No user found user UUID %s", userUuid)));
+    }
+
+    @Override
+    public Optional<User> findUserById(Long userId) {
         try {
-            return jdbc.sql(SELECT_USER_BY_USER_ID_QUERY).param("userId", userId).query(User.class).single();
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException(String.format("No user found user ID %s", userId));
+            return jdbc.sql(SELECT_USER_BY_USER_ID_QUERY).param("userId", userId).query(new UserRowMapper(roleCache::getRole)).optional();
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
+    @Override
+    public User getUserById(Long userId) {
+        return findUserById(userId).orElseThrow(() -> new ApiException(String.format("No user found user ID %s", userId)));
+    }
+
     @Override
     public User updateUser(String userUuid, String firstName, String lastName, String email, String phone, String bio, String address) {
         try {
-            return jdbc.sql(UPDATE_USER_FUNCTION).paramSource(getParamSource(userUuid, firstName, lastName, email, phone, bio, address)).query(User.class).single();
+            return jdbc.sql(UPDATE_USER_FUNCTION).paramSource(getParamSource(userUuid, firstName, lastName, email, phone, bio, address)).query(new UserRowMapper(roleCache::getRole)).single();
         } catch (EmptyResultDataAccessException exception) {
             log.error(exception.getMessage());
             throw new ApiException(String.format("No user found user UUID %s", userUuid));
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
@@ -80,27 +118,124 @@ public class UserRepositoryImpl implements UserRepository {
     public String createUser(String firstName, String lastName, String email, String username, String password) {
         try {
             var token = randomUUUID.get();
-            jdbc.sql(CREATE_USER_STORED_PROCEDURE).paramSource(getParamSource(firstName, lastName, email, username, password, token)).update();
+            var userId = jdbc.sql(CREATE_USER_FUNCTION).paramSource(getParamSource(firstName, lastName, email, username, password, token)).query(Long.class).optional();
+            if(userId.isEmpty()) { throw new ApiException("Email/username already in use. Please try again."); }
             return token;
-        } catch (DuplicateKeyException exception) {
+        } catch (ApiException exception) {
+            throw exception;
+        } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("Email/username already in use. Please try again.");
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public boolean userExists(String email, String username) {
+        try {
+            return jdbc.sql(SELECT_USER_EXISTS_QUERY).params(of("email", email.trim().toLowerCase(), "username", username.trim().toLowerCase())).query(Boolean.class).single();
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public AccountToken getAccountToken(String token) {
+    public Set<String> getUsersInUse(Collection<String> emails, Collection<String> usernames) {
         try {
-            return jdbc.sql(SELECT_ACCOUNT_TOKEN_QUERY).param("token", token).query(AccountToken.class).single();
-        } catch (EmptyResultDataAccessException exception) {
+            var inUse = new HashSet<String>();
+            jdbc.sql(SELECT_USERS_IN_USE_QUERY).params(of("emails", emails, "usernames", usernames)).query(resultSet -> {
+                inUse.add(resultSet.getString("email"));
+                inUse.add(resultSet.getString("username"));
+            });
+            return inUse;
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public List<Long> importUsers(List<UserImport> users) {
+        try {
+            var roleId = roleCache.getRole("USER").map(Role::roleId).orElseThrow(() -> new ApiException("Invalid role. Please try again."));
+            jdbc.sql(CREATE_USER_IMPORTS_TABLE_QUERY).update();
+            jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try {
+                    return new CopyManager(connection.unwrap(BaseConnection.class)).copyIn(COPY_USER_IMPORTS_QUERY, new StringReader(toCsv(users)));
+                } catch (IOException exception) {
+                    throw new SQLException(exception);
+                }
+            });
+            return jdbc.sql(INSERT_USER_IMPORTS_QUERY).param("roleId", roleId).query(Long.class).list();
+        } catch (ApiException exception) {
+            throw exception;
+        } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("Invalid link. Please try again.");
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public Optional<Registration> getRegistration(String idempotencyKey) {
+        try {
+            return jdbc.sql(SELECT_REGISTRATION_QUERY).param("idempotencyKey", idempotencyKey)
+                    .query((resultSet, rowNum) -> new Registration(resultSet.getString(1), resultSet.getBoolean(2), resultSet.getString(3))).optional();
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public boolean claimRegistration(String idempotencyKey, String requestHash) {
+        try {
+            return jdbc.sql(INSERT_REGISTRATION_QUERY).params(of("idempotencyKey", idempotencyKey, "requestHash", requestHash)).update() > 0;
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public void completeRegistration(String idempotencyKey, Registration registration) {
+        try {
+            jdbc.sql(UPDATE_REGISTRATION_QUERY).paramSource(new MapSqlParameterSource()
+                    .addValue("idempotencyKey", idempotencyKey, VARCHAR)
+                    .addValue("succeeded", registration.succeeded(), BOOLEAN)
+                    .addValue("message", registration.message(), VARCHAR)).update();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public void releaseRegistration(String idempotencyKey) {
+        try {
+            jdbc.sql(DELETE_PENDING_REGISTRATION_QUERY).param("idempotencyKey", idempotencyKey).update();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public int deleteExpiredRegistrations(int batchSize) {
+        try {
+            return jdbc.sql(DELETE_EXPIRED_REGISTRATIONS_QUERY).param("batchSize", batchSize).update();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public Optional<AccountToken> verifyAccount(String token) {
+        try {
+            return jdbc.sql(VERIFY_ACCOUNT_FUNCTION).param("token", token).query(new AccountTokenRowMapper()).optional();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
@@ -112,65 +247,98 @@ public class UserRepositoryImpl implements UserRepository {
     @Override
     public User enableMfa(String userUuid) {
         try {
-            return jdbc.sql(ENABLE_USER_MFA_FUNCTION).paramSource(getParamSource(userUuid, qrCodeSecret.get())).query(User.class).single();
+            return jdbc.sql(ENABLE_USER_MFA_FUNCTION).paramSource(getParamSource(userUuid, qrCodeSecret.get())).query(new UserRowMapper(roleCache::getRole)).single();
         } catch (EmptyResultDataAccessException exception) {
             log.error(exception.getMessage());
-            throw new ApiException("User not found. Please try again.");
+            throw ApiException.USER_NOT_FOUND;
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
     public User disableMfa(String userUuid) {
         try {
-            return jdbc.sql(DISABLE_USER_MFA_FUNCTION).param("userUuid", userUuid).query(User.class).single();
+            return jdbc.sql(DISABLE_USER_MFA_FUNCTION).param("userUuid", userUuid).query(new UserRowMapper(roleCache::getRole)).single();
+        } catch (EmptyResultDataAccessException exception) {
+            log.error(exception.getMessage());
+            throw ApiException.USER_NOT_FOUND;
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public Optional<byte[]> getQrCodeImage(String userUuid) {
+        try {
+            return jdbc.sql(SELECT_QR_CODE_IMAGE_QUERY).param("userUuid", userUuid).query(byte[].class).optional();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public String getQrCodeSecret(String userUuid) {
+        try {
+            return jdbc.sql(SELECT_QR_CODE_SECRET_QUERY).param("userUuid", userUuid).query(String.class).single();
         } catch (EmptyResultDataAccessException exception) {
             log.error(exception.getMessage());
-            throw new ApiException("User not found. Please try again.");
+            throw new ApiException("2FA is not enabled for this account");
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public void saveQrCodeImage(String userUuid, String qrCodeSecret, byte[] qrCodeImage) {
+        try {
+            jdbc.sql(INSERT_QR_CODE_IMAGE_QUERY).params(of("userUuid", userUuid, "qrCodeSecret", qrCodeSecret, "qrCodeImage", qrCodeImage)).update();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
     public User toggleAccountExpired(String userUuid) {
         try {
-            return jdbc.sql(TOGGLE_ACCOUNT_EXPIRED_FUNCTION).param("userUuid", userUuid).query(User.class).single();
+            return jdbc.sql(TOGGLE_ACCOUNT_EXPIRED_FUNCTION).param("userUuid", userUuid).query(new UserRowMapper(roleCache::getRole)).single();
         } catch (EmptyResultDataAccessException exception) {
             log.error(exception.getMessage());
-            throw new ApiException("User not found. Please try again.");
+            throw ApiException.USER_NOT_FOUND;
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
     public User toggleAccountLocked(String userUuid) {
         try {
-            return jdbc.sql(TOGGLE_ACCOUNT_LOCKED_FUNCTION).param("userUuid", userUuid).query(User.class).single();
+            return jdbc.sql(TOGGLE_ACCOUNT_LOCKED_FUNCTION).param("userUuid", userUuid).query(new UserRowMapper(roleCache::getRole)).single();
         } catch (EmptyResultDataAccessException exception) {
             log.error(exception.getMessage());
-            throw new ApiException("User not found. Please try again.");
+            throw ApiException.USER_NOT_FOUND;
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
     public User toggleAccountEnabled(String userUuid) {
         try {
-            return jdbc.sql(TOGGLE_ACCOUNT_ENABLED_FUNCTION).param("userUuid", userUuid).query(User.class).single();
+            return jdbc.sql(TOGGLE_ACCOUNT_ENABLED_FUNCTION).param("userUuid", userUuid).query(new UserRowMapper(roleCache::getRole)).single();
         } catch (EmptyResultDataAccessException exception) {
             log.error(exception.getMessage());
-            throw new ApiException("User not found. Please try again.");
+            throw ApiException.USER_NOT_FOUND;
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
@@ -185,59 +353,117 @@ public class UserRepositoryImpl implements UserRepository {
             jdbc.sql(UPDATE_USER_PASSWORD_QUERY).params(of("userUuid", userUuid, "password", encodedPassword)).update();
         } catch (EmptyResultDataAccessException exception) {
             log.error(exception.getMessage());
-            throw new ApiException("User not found. Please try again.");
+            throw ApiException.USER_NOT_FOUND;
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
     public User updateRole(String userUuid, String role) {
         try {
-            return jdbc.sql(UPDATE_USER_ROLE_FUNCTION).params(of("userUuid", userUuid, "role", role)).query(User.class).single();
+            return jdbc.sql(UPDATE_USER_ROLE_FUNCTION).params(of("userUuid", userUuid, "role", role)).query(new UserRowMapper(roleCache::getRole)).single();
         } catch (EmptyResultDataAccessException exception) {
             log.error(exception.getMessage());
-            throw new ApiException("User not found. Please try again.");
+            throw ApiException.USER_NOT_FOUND;
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public void resetPassword(String email) {
+    public List<String> updateAccountFlags(List<String> userUuids, Boolean accountNonExpired, Boolean accountNonLocked, Boolean enabled) {
+        try {
+            return jdbc.sql(UPDATE_ACCOUNT_FLAGS_QUERY).paramSource(new MapSqlParameterSource()
+                    .addValue("userUuids", userUuids)
+                    .addValue("accountNonExpired", accountNonExpired, BOOLEAN)
+                    .addValue("accountNonLocked", accountNonLocked, BOOLEAN)
+                    .addValue("enabled", enabled, BOOLEAN)).query(String.class).list();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
 
+    @Override
+    public List<String> updateRoles(List<String> userUuids, String role) {
+        try {
+            var roleId = roleCache.getRole(role).map(Role::roleId).orElseThrow(() -> new ApiException("Invalid role. Please try again."));
+            return jdbc.sql(UPDATE_USER_ROLES_QUERY).params(of("userUuids", userUuids, "roleId", roleId)).query(String.class).list();
+        } catch (ApiException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
     }
 
     @Override
-    public void doResetPassword(String userUuid, String token, String password, String confirmPassword) {
+    public PasswordReset resetPassword(String email, String token) {
+        try {
+            return jdbc.sql(RESET_PASSWORD_FUNCTION).params(of("email", email, "token", token))
+                    .query((resultSet, rowNum) -> new PasswordReset(new PasswordTokenRowMapper().mapRow(resultSet, rowNum), resultSet.getString("first_name"))).single();
+        } catch (EmptyResultDataAccessException exception) {
+            log.error(exception.getMessage());
+            throw new ApiException(String.format("No user found user email %s", email));
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
 
+    @Override
+    public Optional<PasswordToken> doResetPassword(String userUuid, String token, String encodedPassword) {
+        try {
+            return jdbc.sql(DO_RESET_PASSWORD_FUNCTION).params(of("userUuid", userUuid, "token", token, "password", encodedPassword)).query(new PasswordTokenRowMapper()).optional();
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
     }
 
     @Override
-    public List<User> getUsers() {
+    @Transactional(readOnly = true)
+    public List<User> getUsers(Long cursor, int size) {
         try {
-            return jdbc.sql(SELECT_USERS_QUERY).query(User.class).list();
+            return jdbc.sql(SELECT_USERS_QUERY).params(of("cursor", cursor, "size", size)).query(new UserRowMapper(roleCache::getRole)).list();
         } catch (EmptyResultDataAccessException exception) {
             log.error(exception.getMessage());
             throw new ApiException("Users not found. Please try again.");
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public void deleteAccountToken(String token) {
+    public List<UserSummary> searchUsers(String query, int page, int size) {
         try {
-            jdbc.sql(DELETE_ACCOUNT_TOKEN_QUERY).param("token", token).update();
-        } catch (EmptyResultDataAccessException exception) {
+            return jdbc.sql(SEARCH_USERS_QUERY).params(of("query", query, "pattern", "%" + likePattern.apply(query) + "%", "size", size, "offset", page * size))
+                    .query((resultSet, rowNum) -> new UserSummary(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3), resultSet.getString(4), resultSet.getString(5), resultSet.getString(6))).list();
+        } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("Token not found. Please try again.");
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamUsers(int fetchSize, Consumer<User> consumer) {
+        try {
+            var userRowMapper = new UserRowMapper(roleCache::getRole);
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(SELECT_USERS_STREAM_QUERY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, resultSet -> { consumer.accept(userRowMapper.mapRow(resultSet, resultSet.getRow())); });
+        } catch (ApiException exception) {
+            throw exception;
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
@@ -250,149 +476,211 @@ public class UserRepositoryImpl implements UserRepository {
             throw new ApiException("Token not found. Please try again.");
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public void deletePasswordToken(Long userId) {
+    public String getPassword(String userUuid) {
         try {
-            jdbc.sql(DELETE_PASSWORD_TOKEN_QUERY).param("userId", userId).update();
+            return jdbc.sql(SELECT_USER_PASSWORD_QUERY).param("userUuid", userUuid).query(String.class).single();
         } catch (EmptyResultDataAccessException exception) {
             log.error(exception.getMessage());
-            throw new ApiException("Token not found. Please try again.");
+            throw ApiException.USER_NOT_FOUND;
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public String createPasswordToken(Long userId) {
+    @Transactional(readOnly = true)
+    public void streamTokens(int fetchSize, Consumer<String> consumer) {
         try {
-            var token = randomUUUID.get();
-            jdbc.sql(CREATE_PASSWORD_TOKEN_QUERY).params(of("userId", userId, "token", token)).update();
-            return token;
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException("User not found. Please try again.");
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(SELECT_TOKENS_STREAM_QUERY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, resultSet -> { consumer.accept(resultSet.getString("token")); });
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public String getPassword(String userUuid) {
+    public int deleteExpiredAccountTokens(int batchSize) {
         try {
-            return jdbc.sql(SELECT_USER_PASSWORD_QUERY).param("userUuid", userUuid).query(String.class).single();
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException("User not found. Please try again.");
+            return jdbc.sql(DELETE_EXPIRED_ACCOUNT_TOKENS_QUERY).param("batchSize", batchSize).update();
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public void updateImageUrl(String userUuid, String imageUrl) {
+    public int deleteExpiredPasswordTokens(int batchSize) {
         try {
-            jdbc.sql(UPDATE_USER_IMAGE_URL_QUERY).params(of("userUuid", userUuid, "imageUrl", imageUrl)).update();
-        } catch (EmptyResultDataAccessException exception) {
+            return jdbc.sql(DELETE_EXPIRED_PASSWORD_TOKENS_QUERY).param("batchSize", batchSize).update();
+        } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("User not found. Please try again.");
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public PartitionChanges maintainDevicePartitions(int monthsAhead, int retentionMonths) {
+        try {
+            return jdbc.sql(MAINTAIN_DEVICE_PARTITIONS_FUNCTION).params(of("monthsAhead", monthsAhead, "retentionMonths", retentionMonths))
+                    .query((resultSet, rowNum) -> new PartitionChanges(resultSet.getInt("created"), resultSet.getInt("dropped"), resultSet.getLong("moved"), resultSet.getLong("purged"))).single();
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public PasswordToken getPasswordToken(Long userId) {
+    public String updateImageUrl(String userUuid, String imageUrl) {
         try {
-            return jdbc.sql(SELECT_PASSWORD_TOKEN_BY_USER_ID_QUERY).params(of("userId", userId)).query(PasswordToken.class).single();
-        } catch (EmptyResultDataAccessException exception) {
+            var previous = jdbc.sql(UPDATE_USER_IMAGE_URL_QUERY).params(of("userUuid", userUuid, "imageUrl", imageUrl)).query(String.class).list();
+            if(previous.isEmpty()) { throw ApiException.USER_NOT_FOUND; }
+            return previous.getFirst();
+        } catch (ApiException exception) {
+            throw exception;
+        } catch (Exception exception) {
             log.error(exception.getMessage());
-            //throw new ApiException("Invalid link. Please try again.");
-            return null;
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public Optional<PasswordToken> findPasswordToken(String token) {
+        try {
+            return jdbc.sql(SELECT_PASSWORD_TOKEN_QUERY).param("token", token).query(new PasswordTokenRowMapper()).optional();
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
     public PasswordToken getPasswordToken(String token) {
+        return findPasswordToken(token).orElseThrow(() -> ApiException.INVALID_LINK);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public User getAssignee(String ticketUuid) {
         try {
-            return jdbc.sql(SELECT_PASSWORD_TOKEN_QUERY).param("token", token).query(PasswordToken.class).single();
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException("Invalid link. Please try again.");
+            return jdbc.sql(SELECT_TICKET_ASSIGNEE_QUERY).param("ticketUuid", ticketUuid).query(new UserRowMapper(roleCache::getRole)).optional().orElseGet(() -> User.builder().build());
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public void updateAccountSettings(Long userId) {
+    public Map<String, User> getUsersByUuids(List<String> userUuids) {
         try {
-            jdbc.sql(UPDATE_ACCOUNT_SETTINGS_QUERY).param("userId", userId).update();
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException("User not found. Please try again.");
+            var users = new LinkedHashMap<String, User>();
+            jdbc.sql(SELECT_USERS_BY_USER_UUIDS_QUERY).param("userUuids", userUuids.toArray(String[]::new)).query(new UserRowMapper(roleCache::getRole)).list()
+                    .forEach(user -> users.put(user.getUserUuid(), user));
+            return users;
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public User getAssignee(String ticketUuid) {
+    public Map<String, User> getAssignees(List<String> ticketUuids) {
         try {
-            return jdbc.sql(SELECT_TICKET_ASSIGNEE_QUERY).param("ticketUuid", ticketUuid).query(User.class).single();
-        } catch (EmptyResultDataAccessException exception) {
+            var userRowMapper = new UserRowMapper(roleCache::getRole);
+            var assignees = new LinkedHashMap<String, User>();
+            jdbc.sql(SELECT_TICKET_ASSIGNEES_QUERY).param("ticketUuids", ticketUuids.toArray(String[]::new))
+                    .query((resultSet, rowNum) -> Map.entry(resultSet.getString("ticket_uuid"), userRowMapper.mapRow(resultSet, rowNum))).list()
+                    .forEach(assignee -> assignees.put(assignee.getKey(), assignee.getValue()));
+            return assignees;
+        } catch (Exception exception) {
             log.error(exception.getMessage());
-            log.error("Ticket is not assigned.");
-            return User.builder().build();
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Credential> findCredential(String userUuid) {
+        try {
+            return jdbc.sql(SELECT_USER_CREDENTIAL_QUERY).param("userUuid", userUuid).query(new CredentialRowMapper()).optional();
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Credential getCredential(String userUuid) {
+        return findCredential(userUuid).orElseThrow(() -> new ApiException("Credential not found. Please try again."));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Device> getDevices(String userUuid) {
         try {
-            return jdbc.sql(SELECT_USER_CREDENTIAL_QUERY).param("userUuid", userUuid).query(Credential.class).single();
+            return jdbc.sql(SELECT_DEVICES_QUERY).param("userUuid", userUuid).query(new DeviceRowMapper()).list();
         } catch (EmptyResultDataAccessException exception) {
             log.error(exception.getMessage());
-            throw new ApiException("Credential not found. Please try again.");
+            throw ApiException.USER_NOT_FOUND;
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw ApiException.GENERIC_ERROR;
         }
     }
 
     @Override
-    public List<Device> getDevices(String userUuid) {
+    public Optional<Profile> findProfile(String userUuid) {
         try {
-            return jdbc.sql(SELECT_DEVICES_QUERY).param("userUuid", userUuid).query(Device.class).list();
-        } catch (EmptyResultDataAccessException exception) {
+            var userRowMapper = new UserRowMapper(roleCache::getRole);
+            return jdbc.sql(SELECT_PROFILE_QUERY).param("userUuid", userUuid).query((resultSet, rowNum) ->
+                    new Profile(userRowMapper.mapRow(resultSet, rowNum), toDevices(resultSet.getString("devices")))).optional();
+        } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("User not found. Please try again.");
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    @Override
+    public Profile getProfile(String userUuid) {
+        return findProfile(userUuid).orElseThrow(() -> new ApiException(String.format("No user found user UUID %s", userUuid)));
+    }
+
+    private final Function<String, String> likePattern = query -> query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+
+    private List<Device> toDevices(String devices) {
+        try {
+            return mapper.readValue(devices, new TypeReference<>() {});
         } catch (Exception exception) {
             log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
+            throw new ApiException("Unable to read devices");
         }
     }
 
+    private String toCsv(List<UserImport> users) {
+        var csv = new StringBuilder(users.size() * 256);
+        users.forEach(user -> csv.append(String.join(",", String.valueOf(user.line()), randomUUUID.get(), csvValue(user.firstName()), csvValue(user.lastName()),
+                csvValue(user.email()), csvValue(user.username()), csvValue(user.password()), randomUUUID.get(), user.token())).append('\n'));
+        return csv.toString();
+    }
+
+    private String csvValue(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
     private SqlParameterSource getParamSource(String userUuid, String qrCodeSecret) {
         return new MapSqlParameterSource()
                 .addValue("userUuid", userUuid, VARCHAR)
-                .addValue("qrCodeSecret", qrCodeSecret, VARCHAR)
-                .addValue("qrCodeImageUri", qrCodeImageUri.apply(qrCodeSecret), VARCHAR);
+                .addValue("qrCodeSecret", qrCodeSecret, VARCHAR);
     }
 
     private SqlParameterSource getParamSource(String userUuid, String firstName, String lastName, String email, String phone, String bio, String address) {
@@ -415,7 +703,6 @@ public class UserRepositoryImpl implements UserRepository {
                 .addValue("username", username.trim().toLowerCase(), VARCHAR)
                 .addValue("password", password, VARCHAR)
                 .addValue("token", token, VARCHAR)
-                .addValue("credentialUuid", randomUUUID.get(), VARCHAR)
-                .addValue("memberId", memberId.get(), VARCHAR);
+                .addValue("credentialUuid", randomUUUID.get(), VARCHAR);
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package userservice.repository.mapper;
+import userservice.model.AccountToken;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+public class AccountTokenRowMapper extends IndexedRowMapper<AccountToken> {
+    private static final List<String> COLUMNS = List.of("account_token_id", "user_id", "token", "expired", "created_at", "updated_at");
+
+    public AccountTokenRowMapper() {
+        super(COLUMNS);
+    }
+
+    @Override
+    protected AccountToken newInstance() {
+        return new AccountToken();
+    }
+
+    @Override
+    protected void set(AccountToken accountToken, int field, ResultSet resultSet, int column) throws SQLException {
+        switch (field) {
+            case 0 -> accountToken.setAccountTokenId(getLong(resultSet, column));
+            case 1 -> accountToken.setUserId(getLong(resultSet, column));
+            case 2 -> accountToken.setToken(resultSet.getString(column));
+            case 3 -> accountToken.setExpired(resultSet.getBoolean(column));
+            case 4 -> accountToken.setCreatedAt(resultSet.getString(column));
+            case 5 -> accountToken.setUpdatedAt(resultSet.getString(column));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package userservice.repository.mapper;
+import userservice.model.Credential;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+public class CredentialRowMapper extends IndexedRowMapper<Credential> {
+    private static final List<String> COLUMNS = List.of("credential_id", "credential_uuid", "password", "created_at", "updated_at");
+
+    public CredentialRowMapper() {
+        super(COLUMNS);
+    }
+
+    @Override
+    protected Credential newInstance() {
+        return new Credential();
+    }
+
+    @Override
+    protected void set(Credential credential, int field, ResultSet resultSet, int column) throws SQLException {
+        switch (field) {
+            case 0 -> credential.setCredentialId(getLong(resultSet, column));
+            case 1 -> credential.setCredentialUuid(resultSet.getString(column));
+            case 2 -> credential.setPassword(resultSet.getString(column));
+            case 3 -> credential.setCreatedAt(resultSet.getString(column));
+            case 4 -> credential.setUpdatedAt(resultSet.getString(column));
+        }
+    }
+}
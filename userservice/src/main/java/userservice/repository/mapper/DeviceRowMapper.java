@@ -0,0 +1,32 @@
+package userservice.repository.mapper;
+import userservice.model.Device;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+public class DeviceRowMapper extends IndexedRowMapper<Device> {
+    private static final List<String> COLUMNS = List.of("device_id", "user_id", "device", "client", "ip_address", "created_at", "updated_at", "login_count");
+
+    public DeviceRowMapper() {
+        super(COLUMNS);
+    }
+
+    @Override
+    protected Device newInstance() {
+        return new Device();
+    }
+
+    @Override
+    protected void set(Device device, int field, ResultSet resultSet, int column) throws SQLException {
+        switch (field) {
+            case 0 -> device.setDeviceId(getLong(resultSet, column));
+            case 1 -> device.setUserId(getLong(resultSet, column));
+            case 2 -> device.setDevice(resultSet.getString(column));
+            case 3 -> device.setClient(resultSet.getString(column));
+            case 4 -> device.setIpAddress(resultSet.getString(column));
+            case 5 -> device.setCreatedAt(resultSet.getString(column));
+            case 6 -> device.setUpdatedAt(resultSet.getString(column));
+            case 7 -> device.setLoginCount(getLong(resultSet, column));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package userservice.repository.mapper;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+import static java.util.Objects.isNull;
+// Column positions are resolved once from the first row's metadata, so use a new instance per query
+public abstract class IndexedRowMapper<T> implements RowMapper<T> {
+    private final List<String> columns;
+    private int[] fields;
+
+    protected IndexedRowMapper(List<String> columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public T mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+        if(isNull(fields)) { fields = resolve(resultSet.getMetaData()); }
+        var target = newInstance();
+        for(var column = 0; column < fields.length; column++) {
+            if(fields[column] >= 0) { set(target, fields[column], resultSet, column + 1); }
+        }
+        return target;
+    }
+
+    protected abstract T newInstance();
+
+    protected abstract void set(T target, int field, ResultSet resultSet, int column) throws SQLException;
+
+    protected static Long getLong(ResultSet resultSet, int column) throws SQLException {
+        var value = resultSet.getLong(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private int[] resolve(ResultSetMetaData metaData) throws SQLException {
+        var fields = new int[metaData.getColumnCount()];
+        for(var column = 0; column < fields.length; column++) {
+            fields[column] = columns.indexOf(JdbcUtils.lookupColumnName(metaData, column + 1).toLowerCase());
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,30 @@
+package userservice.repository.mapper;
+import userservice.model.PasswordToken;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+public class PasswordTokenRowMapper extends IndexedRowMapper<PasswordToken> {
+    private static final List<String> COLUMNS = List.of("password_token_id", "user_id", "token", "expired", "created_at", "updated_at");
+
+    public PasswordTokenRowMapper() {
+        super(COLUMNS);
+    }
+
+    @Override
+    protected PasswordToken newInstance() {
+        return new PasswordToken();
+    }
+
+    @Override
+    protected void set(PasswordToken passwordToken, int field, ResultSet resultSet, int column) throws SQLException {
+        switch (field) {
+            case 0 -> passwordToken.setPasswordTokenId(getLong(resultSet, column));
+            case 1 -> passwordToken.setUserId(getLong(resultSet, column));
+            case 2 -> passwordToken.setToken(resultSet.getString(column));
+            case 3 -> passwordToken.setExpired(resultSet.getBoolean(column));
+            case 4 -> passwordToken.setCreatedAt(resultSet.getString(column));
+            case 5 -> passwordToken.setUpdatedAt(resultSet.getString(column));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package userservice.repository.mapper;
+import userservice.domain.Role;
+import userservice.model.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.Objects.nonNull;
+public class UserRowMapper extends IndexedRowMapper<User> {
+    private static final List<String> COLUMNS = List.of("user_id", "user_uuid", "first_name", "last_name", "email", "password", "phone", "bio", "image_url", "qr_code_secret",
+            "last_login", "login_attempts", "created_at", "updated_at", "role", "authorities", "mfa", "account_non_expired", "account_non_locked", "credentials_non_expired", "enabled", "role_id");
+
+    private final Function<Long, Role> roles;
+
+    public UserRowMapper() {
+        this(null);
+    }
+
+    public UserRowMapper(Function<Long, Role> roles) {
+        super(COLUMNS);
+        this.roles = roles;
+    }
+
+    @Override
+    protected User newInstance() {
+        return new User();
+    }
+
+    @Override
+    protected void set(User user, int field, ResultSet resultSet, int column) throws SQLException {
+        switch (field) {
+            case 0 -> user.setUserId(getLong(resultSet, column));
+            case 1 -> user.setUserUuid(resultSet.getString(column));
+            case 2 -> user.setFirstName(resultSet.getString(column));
+            case 3 -> user.setLastName(resultSet.getString(column));
+            case 4 -> user.setEmail(resultSet.getString(column));
+            case 5 -> user.setPassword(resultSet.getString(column));
+            case 6 -> user.setPhone(resultSet.getString(column));
+            case 7 -> user.setBio(resultSet.getString(column));
+            case 8 -> user.setImageUrl(resultSet.getString(column));
+            case 9 -> user.setQrCodeSecret(resultSet.getString(column));
+            case 10 -> user.setLastLogin(resultSet.getString(column));
+            case 11 -> user.setLoginAttempts(resultSet.getInt(column));
+            case 12 -> user.setCreatedAt(resultSet.getString(column));
+            case 13 -> user.setUpdatedAt(resultSet.getString(column));
+            case 14 -> user.setRole(resultSet.getString(column));
+            case 15 -> user.setAuthorities(resultSet.getString(column));
+            case 16 -> user.setMfa(resultSet.getBoolean(column));
+            case 17 -> user.setAccountNonExpired(resultSet.getBoolean(column));
+            case 18 -> user.setAccountNonLocked(resultSet.getBoolean(column));
+            case 19 -> user.setCredentialsNonExpired(resultSet.getBoolean(column));
+            case 20 -> user.setEnabled(resultSet.getBoolean(column));
+            case 21 -> {
+                var roleId = getLong(resultSet, column);
+                if(nonNull(roles) && nonNull(roleId)) {
+                    var role = roles.apply(roleId);
+                    user.setRole(role.name());
+                    user.setAuthorities(role.authority());
+                }
+            }
+        }
+    }
+}
@@ -2,6 +2,9 @@ package userservice.resource;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,40 +12,57 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import userservice.domain.Response;
+import userservice.dtorequest.BatchRequest;
+import userservice.dtorequest.BulkAccountRequest;
+import userservice.dtorequest.BulkRoleRequest;
 import userservice.dtorequest.PasswordRequest;
 import userservice.dtorequest.ResetPasswordRequest;
 import userservice.dtorequest.RoleRequest;
 import userservice.dtorequest.UserRequest;
+import userservice.service.PhotoService;
 import userservice.service.UserService;
 
 import java.io.IOException;
 import java.net.URI;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 
 import static java.util.Collections.emptyMap;
 import static java.util.Map.of;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+import static org.springframework.http.MediaType.IMAGE_PNG;
 import static org.springframework.http.ResponseEntity.created;
 import static org.springframework.http.ResponseEntity.ok;
-import static userservice.constant.Constants.PHOTO_DIRECTORY;
+import static userservice.constant.Constants.IDEMPOTENCY_KEY_HEADER;
+import static userservice.constant.Constants.PHOTO_CACHE_MAX_AGE;
+import static userservice.constant.Constants.QR_CODE_CACHE_MAX_AGE;
+import static userservice.constant.Constants.TEXT_CSV_VALUE;
 import static userservice.utils.RequestUtils.getResponse;
+import static userservice.utils.UserUtils.profileVersion;
+import static userservice.utils.UserUtils.userVersion;
 @RestController
 @AllArgsConstructor
 @RequestMapping("/user")
 public class UserResource {
     private final UserService userService;
+    private final PhotoService photoService;
 
     @PostMapping("/register")
-    public ResponseEntity<Response> register(@RequestBody UserRequest user, HttpServletRequest request) {
-        userService.createUser(user.getFirstName(), user.getLastName(), user.getEmail(), user.getUsername(), user.getPassword());
+    public ResponseEntity<Response> register(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, @RequestBody UserRequest user, HttpServletRequest request) {
+        userService.createUser(idempotencyKey, user.getFirstName(), user.getLastName(), user.getEmail(), user.getUsername(), user.getPassword());
         return created(getUri()).body(getResponse(request, emptyMap(), "Account created. Check your email to enable your account", CREATED));
     }
 
@@ -64,16 +84,26 @@ public class UserResource {
         return ok(getResponse(request, of("user", user), "2FA disabled successfully", OK));
     }
 
+    @GetMapping("/mfa/qrcode")
+    public CompletableFuture<ResponseEntity<byte[]>> getQrCode(@NotNull Authentication authentication) {
+        return userService.getQrCodeImage(authentication.getName()).thenApply(image -> ok()
+                .eTag(Integer.toHexString(Arrays.hashCode(image)))
+                .cacheControl(CacheControl.maxAge(QR_CODE_CACHE_MAX_AGE).cachePrivate())
+                .contentType(IMAGE_PNG)
+                .body(image));
+    }
+
     @GetMapping("/profile")
-    public ResponseEntity<Response> profile(@NotNull Authentication authentication, HttpServletRequest request) {
-        var user = userService.getUserByUuid(authentication.getName());
-        var devices = userService.getDevices(authentication.getName());
-        return ok(getResponse(request, of("user", user, "devices", devices), "Profile retrieved", OK));
+    public ResponseEntity<Response> profile(@NotNull Authentication authentication, HttpServletRequest request, WebRequest webRequest) {
+        var profile = userService.getProfile(authentication.getName());
+        if(webRequest.checkNotModified(profileVersion.apply(profile.user(), profile.devices()))) { return null; }
+        return ok(getResponse(request, of("user", profile.user(), "devices", profile.devices()), "Profile retrieved", OK));
     }
 
     @GetMapping("/{userUuid}")
-    public ResponseEntity<Response> getUserByUuid(@NotNull Authentication authentication, @PathVariable("userUuid") String userUuid, HttpServletRequest request) {
+    public ResponseEntity<Response> getUserByUuid(@NotNull Authentication authentication, @PathVariable("userUuid") String userUuid, HttpServletRequest request, WebRequest webRequest) {
         var user = userService.getUserByUuid(userUuid);
+        if(webRequest.checkNotModified(userVersion.apply(user))) { return null; }
         return ok(getResponse(request, of("user", user), "Profile retrieved", OK));
     }
 
@@ -83,6 +113,18 @@ public class UserResource {
         return ok(getResponse(request, of("user", user), "Profile retrieved", OK));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<Response> getUsersByUuids(@NotNull Authentication authentication, @RequestBody BatchRequest batchRequest, HttpServletRequest request) {
+        var users = userService.getUsersByUuids(batchRequest.getUserUuids());
+        return ok(getResponse(request, of("users", users), "Users retrieved", OK));
+    }
+
+    @PostMapping("/assignee/batch")
+    public ResponseEntity<Response> getAssignees(@NotNull Authentication authentication, @RequestBody BatchRequest batchRequest, HttpServletRequest request) {
+        var assignees = userService.getAssignees(batchRequest.getTicketUuids());
+        return ok(getResponse(request, of("assignees", assignees), "Assignees retrieved", OK));
+    }
+
     @GetMapping("/user/{email}")
     public ResponseEntity<Response> getUserByEmail(@NotNull Authentication authentication, @PathVariable("email") String email, HttpServletRequest request) {
         var user = userService.getUserByEmail(email);
@@ -125,6 +167,23 @@ public class UserResource {
         return ok(getResponse(request, of("user", user), "User updated successfully", OK));
     }
 
+    @PatchMapping("/bulk/accountflags")
+    public ResponseEntity<Response> updateAccountFlags(@NotNull Authentication authentication, @RequestBody BulkAccountRequest bulkRequest, HttpServletRequest request) {
+        var results = userService.updateAccountFlags(bulkRequest.getUserUuids(), bulkRequest.getAccountNonExpired(), bulkRequest.getAccountNonLocked(), bulkRequest.getEnabled());
+        return ok(getResponse(request, of("results", results), "Users updated", OK));
+    }
+
+    @PatchMapping("/bulk/updaterole")
+    public ResponseEntity<Response> updateRoles(@NotNull Authentication authentication, @RequestBody BulkRoleRequest bulkRequest, HttpServletRequest request) {
+        var results = userService.updateRoles(bulkRequest.getUserUuids(), bulkRequest.getRole());
+        return ok(getResponse(request, of("results", results), "Users updated", OK));
+    }
+
+    @PostMapping(value = "/bulk/import", consumes = TEXT_CSV_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importUsers(@NotNull Authentication authentication, HttpServletRequest request) {
+        return ok().contentType(APPLICATION_NDJSON).body(outputStream -> userService.importUsers(request.getInputStream(), outputStream));
+    }
+
     //When user IS logged in
     @PatchMapping("/updatepassword")
     public ResponseEntity<Response> updatePassword(@NotNull Authentication authentication, @RequestBody PasswordRequest passwordRequest, HttpServletRequest request) {
@@ -153,9 +212,22 @@ public class UserResource {
         return ok(getResponse(request, emptyMap(), "Password reset successfully. You may log in now", OK));
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<Response> searchUsers(@NotNull Authentication authentication, @RequestParam("q") String query, @RequestParam(value = "page", defaultValue = "0") int page, @RequestParam(value = "size", defaultValue = "10") int size, HttpServletRequest request) {
+        var users = userService.searchUsers(query, page, size);
+        return ok(getResponse(request, of("users", users, "page", page), "Users retrieved", OK));
+    }
+
     @GetMapping("/list")
-    public ResponseEntity<Response> getUsers(@NotNull Authentication authentication, HttpServletRequest request) {
-        return ok(getResponse(request, of("users", userService.getUsers()), "Users retrieved", OK));
+    public ResponseEntity<Response> getUsers(@NotNull Authentication authentication, @RequestParam(value = "cursor", defaultValue = "0") Long cursor, @RequestParam(value = "size", defaultValue = "100") int size, HttpServletRequest request) {
+        var users = userService.getUsers(cursor, size);
+        var nextCursor = users.isEmpty() ? cursor : users.getLast().getUserId();
+        return ok(getResponse(request, of("users", users, "nextCursor", nextCursor), "Users retrieved", OK));
+    }
+
+    @GetMapping(value = "/list/stream", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers(@NotNull Authentication authentication) {
+        return ok().contentType(APPLICATION_NDJSON).body(userService::streamUsers);
     }
 
     @PatchMapping("/photo")
@@ -165,8 +237,15 @@ public class UserResource {
     }
 
     @GetMapping("/image/{filename}")
-    public byte [] getPhoto(@PathVariable("filename") String filename) throws IOException {
-        return Files.readAllBytes(Paths.get(PHOTO_DIRECTORY + filename));
+    public ResponseEntity<Resource> getPhoto(@PathVariable("filename") String filename, @RequestParam(value = "size", required = false) Integer size) throws IOException {
+        var photo = photoService.getPhoto(filename, size);
+        var lastModified = photo.lastModified();
+        return ok()
+                .eTag(Long.toHexString(lastModified) + "-" + Long.toHexString(photo.contentLength()))
+                .lastModified(lastModified)
+                .cacheControl(CacheControl.maxAge(PHOTO_CACHE_MAX_AGE).cachePublic())
+                .contentType(MediaTypeFactory.getMediaType(photo).orElse(APPLICATION_OCTET_STREAM))
+                .body(photo);
     }
 
 
@@ -0,0 +1,38 @@
+package userservice.scheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import userservice.repository.UserRepository;
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DevicePartitionJob {
+    private final UserRepository userRepository;
+    private final MeterRegistry registry;
+    @Value("${device.partition.months-ahead:3}")
+    private int monthsAhead;
+    @Value("${device.partition.retention-months:6}")
+    private int retentionMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${device.partition.cron:0 30 3 * * *}")
+    public void maintain() {
+        try {
+            var changes = registry.timer("devices.partition.time").record(() -> userRepository.maintainDevicePartitions(monthsAhead, retentionMonths));
+            registry.counter("devices.partitions.created").increment(changes.created());
+            registry.counter("devices.partitions.dropped").increment(changes.dropped());
+            registry.counter("devices.partition.default.rows").increment(changes.moved() + changes.purged());
+            log.info("Device partitions maintained: {} created, {} dropped", changes.created(), changes.dropped());
+            if (changes.moved() + changes.purged() > 0) {
+                log.warn("Default device partition held {} rows: {} moved into monthly partitions, {} past retention deleted", changes.moved() + changes.purged(), changes.moved(), changes.purged());
+            }
+        } catch (Exception exception) {
+            log.error("Unable to maintain device partitions: {}", exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package userservice.scheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import userservice.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RegistrationPurgeJob {
+    private final UserRepository userRepository;
+    private final MeterRegistry registry;
+    @Value("${registration.purge.batch-size:1000}")
+    private int batchSize;
+    @Value("${registration.purge.pause:PT0.2S}")
+    private Duration pause;
+    @Value("${registration.purge.max-runtime:PT5M}")
+    private Duration maxRuntime;
+
+    @Scheduled(cron = "${registration.purge.cron:0 15 * * * *}")
+    public void purge() {
+        var deadline = Instant.now().plus(maxRuntime);
+        var start = System.nanoTime();
+        var purged = 0;
+        try {
+            int deleted;
+            do {
+                deleted = userRepository.deleteExpiredRegistrations(batchSize);
+                purged += deleted;
+                if(deleted == batchSize) { Thread.sleep(pause); }
+            } while (deleted == batchSize && Instant.now().isBefore(deadline));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (Exception exception) {
+            log.error("Unable to purge expired registrations: {}", exception.getMessage());
+        } finally {
+            registry.summary("registrations.purged").record(purged);
+            registry.timer("registrations.purge.time").record(Duration.ofNanos(System.nanoTime() - start));
+            log.info("Purged {} expired registrations", purged);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package userservice.scheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import userservice.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.IntUnaryOperator;
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenPurgeJob {
+    private final UserRepository userRepository;
+    private final MeterRegistry registry;
+    @Value("${token.purge.batch-size:1000}")
+    private int batchSize;
+    @Value("${token.purge.pause:PT0.2S}")
+    private Duration pause;
+    @Value("${token.purge.max-runtime:PT5M}")
+    private Duration maxRuntime;
+
+    @Scheduled(cron = "${token.purge.cron:0 0 * * * *}")
+    public void purge() {
+        var deadline = Instant.now().plus(maxRuntime);
+        purge("account", userRepository::deleteExpiredAccountTokens, deadline);
+        purge("password", userRepository::deleteExpiredPasswordTokens, deadline);
+    }
+
+    private void purge(String type, IntUnaryOperator deleteBatch, Instant deadline) {
+        var start = System.nanoTime();
+        var purged = 0;
+        try {
+            int deleted;
+            do {
+                deleted = deleteBatch.applyAsInt(batchSize);
+                purged += deleted;
+                if(deleted == batchSize) { Thread.sleep(pause); }
+            } while (deleted == batchSize && Instant.now().isBefore(deadline));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (Exception exception) {
+            log.error("Unable to purge expired {} tokens: {}", type, exception.getMessage());
+        } finally {
+            registry.summary("tokens.purged", "type", type).record(purged);
+            registry.timer("tokens.purge.time", "type", type).record(Duration.ofNanos(System.nanoTime() - start));
+            log.info("Purged {} expired {} tokens", purged, type);
+        }
+    }
+}
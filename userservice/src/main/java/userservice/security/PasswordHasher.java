@@ -0,0 +1,88 @@
+package userservice.security;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+import userservice.exception.ApiException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+@Slf4j
+@Component
+public class PasswordHasher {
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolTaskExecutor passwordExecutor;
+    private final ForkJoinPool importPool;
+    private final Duration timeout;
+    private final Timer queueTimer;
+    private final Timer hashTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHasher(BCryptPasswordEncoder encoder, @Qualifier("passwordExecutor") ThreadPoolTaskExecutor passwordExecutor, @Qualifier("importPool") ForkJoinPool importPool, @Value("${password.executor.timeout:PT10S}") Duration timeout, MeterRegistry registry) {
+        this.encoder = encoder;
+        this.passwordExecutor = passwordExecutor;
+        this.importPool = importPool;
+        this.timeout = timeout;
+        this.queueTimer = Timer.builder("password.hash.queue").description("Time a hashing task waits for a password thread").publishPercentiles(0.5, 0.95, 0.99).register(registry);
+        this.hashTimer = Timer.builder("password.hash.time").description("Time spent hashing or verifying a password").publishPercentiles(0.5, 0.95, 0.99).register(registry);
+        this.rejectedCounter = Counter.builder("password.hash.rejected").description("Hashing tasks rejected because the password executor was saturated").register(registry);
+    }
+
+    public String encode(String password) {
+        return submit(() -> encoder.encode(password));
+    }
+
+    public boolean matches(String password, String encodedPassword) {
+        return submit(() -> encoder.matches(password, encodedPassword));
+    }
+
+    public List<String> encodeAll(List<String> passwords) {
+        try {
+            return importPool.submit(() -> passwords.parallelStream().map(password -> hashTimer.record(() -> encoder.encode(password))).toList()).get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw ApiException.GENERIC_ERROR;
+        } catch (ExecutionException exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+
+    private <T> T submit(Supplier<T> task) {
+        var submittedAt = System.nanoTime();
+        try {
+            var future = passwordExecutor.submit(() -> {
+                queueTimer.record(System.nanoTime() - submittedAt, NANOSECONDS);
+                return hashTimer.record(task);
+            });
+            try {
+                return future.get(timeout.toNanos(), NANOSECONDS);
+            } catch (TimeoutException exception) {
+                future.cancel(true);
+                throw new TaskRejectedException("Password hashing timed out", exception);
+            }
+        } catch (TaskRejectedException exception) {
+            rejectedCounter.increment();
+            log.warn(exception.getMessage());
+            throw exception;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw ApiException.GENERIC_ERROR;
+        } catch (ExecutionException exception) {
+            log.error(exception.getMessage());
+            throw ApiException.GENERIC_ERROR;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package userservice.service;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+public interface PhotoService {
+    String savePhoto(MultipartFile image);
+    void releasePhoto(String imageUrl);
+    void createThumbnails(String filename);
+    Resource getPhoto(String filename, Integer size);
+}
@@ -1,19 +1,27 @@
 package userservice.service;
 import org.springframework.web.multipart.MultipartFile;
+import userservice.domain.BulkResult;
+import userservice.domain.Profile;
+import userservice.domain.UserSummary;
 import userservice.model.Credential;
 import userservice.model.Device;
 import userservice.model.User;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 public interface UserService {
     User getUserByEmail(String email);
     User getUserByUuid(String userUuid);
     User updateUser(String userUuid, String firstName, String lastName, String email, String phone, String bio, String address);
-    void createUser(String firstName, String lastName, String email, String username, String password);
+    void createUser(String idempotencyKey, String firstName, String lastName, String email, String username, String password);
     void verifyAccount(String token);
     User verifyPasswordToken(String token);
     User enableMfa(String userUuid);
     User disableMfa(String userUuid);
+    CompletableFuture<byte[]> getQrCodeImage(String userUuid);
     User uploadPhoto(String userUuid, MultipartFile file);
     User toggleAccountExpired(String userUuid);
     User toggleAccountLocked(String userUuid);
@@ -21,12 +29,20 @@ public interface UserService {
     User toggleCredentialsExpired(String userUuid);
     void updatePassword(String userUuid, String currentPassword, String newPassword, String confirmNewPassword);
     User updateRole(String userUuid, String role);
+    List<BulkResult> updateAccountFlags(List<String> userUuids, Boolean accountNonExpired, Boolean accountNonLocked, Boolean enabled);
+    List<BulkResult> updateRoles(List<String> userUuids, String role);
     void resetPassword(String email);
     void doResetPassword(String userUuid, String token, String password, String confirmPassword);
-    List<User> getUsers();
+    List<User> getUsers(Long cursor, int size);
+    void streamUsers(OutputStream outputStream);
+    void importUsers(InputStream inputStream, OutputStream outputStream);
+    List<UserSummary> searchUsers(String query, int page, int size);
     User getAssignee(String ticketUuid);
+    Map<String, User> getUsersByUuids(List<String> userUuids);
+    Map<String, User> getAssignees(List<String> ticketUuids);
     Credential getCredential(String userUuid);
     List<Device> getDevices(String userUuid);
+    Profile getProfile(String userUuid);
 }
 
 
@@ -0,0 +1,202 @@
+package userservice.service.implementation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import userservice.exception.ApiException;
+import userservice.repository.PhotoRepository;
+import userservice.service.PhotoService;
+import userservice.storage.PhotoStore;
+
+import javax.imageio.ImageIO;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.springframework.transaction.TransactionDefinition.PROPAGATION_REQUIRES_NEW;
+import static org.springframework.transaction.annotation.Propagation.MANDATORY;
+import static userservice.constant.Constants.THUMBNAIL_SIZES;
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PhotoServiceImpl implements PhotoService {
+    private final PhotoStore photoStore;
+    private final PhotoRepository photoRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Override
+    @Transactional(propagation = MANDATORY)
+    public String savePhoto(MultipartFile image) {
+        try {
+            var extension = fileExtension.apply(image.getOriginalFilename());
+            String filename;
+            try (var content = image.getInputStream()) { filename = photoStore.filename(content, extension); }
+            photoRepository.acquirePhoto(filename);
+            // The file is only written once the reference is committed, so a rolled back upload leaves nothing behind
+            afterCommit(() -> writePhoto(image, extension));
+            return filename;
+        } catch (ApiException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw new ApiException("Unable to save image");
+        }
+    }
+
+    @Override
+    @Transactional(propagation = MANDATORY)
+    public void releasePhoto(String imageUrl) {
+        var filename = filenameOf.apply(imageUrl);
+        var references = photoRepository.releasePhoto(filename);
+        if(references.isPresent() && references.get() <= 0) {
+            afterCommit(() -> deleteUnusedPhoto(filename));
+        }
+    }
+
+    @Async("photoExecutor")
+    @Override
+    public void createThumbnails(String filename) {
+        try {
+            if(THUMBNAIL_SIZES.stream().allMatch(size -> photoStore.exists(thumbnailName.apply(filename, size)))) { return; }
+            var image = readImage(filename);
+            if(isNull(image)) {
+                log.warn("Unsupported image format for {}. Thumbnails will be served from the original image", filename);
+                return;
+            }
+            var format = imageFormat.apply(filename);
+            var thumbnail = cropSquare(image, format);
+            for(var size : THUMBNAIL_SIZES) {
+                thumbnail = resize(thumbnail, size);
+                writeThumbnail(filename, size, thumbnail, format);
+            }
+        } catch (Exception exception) {
+            log.error("Unable to create thumbnails for {}: {}", filename, exception.getMessage());
+        }
+    }
+
+    @Override
+    public Resource getPhoto(String filename, Integer size) {
+        if(nonNull(size) && THUMBNAIL_SIZES.contains(size)) {
+            var thumbnail = thumbnailName.apply(filename, size);
+            // A thumbnail job dropped by a full photo queue, or lost on restart, is made by the first request for that size
+            if(photoStore.exists(thumbnail) || createThumbnail(filename, size)) { return photoStore.load(thumbnail); }
+        }
+        return photoStore.load(filename);
+    }
+
+    private boolean createThumbnail(String filename, int size) {
+        try {
+            var image = readImage(filename);
+            if(isNull(image)) { return false; }
+            var format = imageFormat.apply(filename);
+            writeThumbnail(filename, size, resize(cropSquare(image, format), size), format);
+            return true;
+        } catch (Exception exception) {
+            log.error("Unable to create {} thumbnail for {}: {}", size, filename, exception.getMessage());
+            return false;
+        }
+    }
+
+    private BufferedImage readImage(String filename) throws IOException {
+        try (var input = photoStore.load(filename).getInputStream()) { return ImageIO.read(input); }
+    }
+
+    private void writeThumbnail(String filename, int size, BufferedImage thumbnail, String format) throws IOException {
+        var output = new ByteArrayOutputStream();
+        ImageIO.write(thumbnail, format, output);
+        photoStore.save(thumbnailName.apply(filename, size), new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    private void writePhoto(MultipartFile image, String extension) {
+        try (var content = image.getInputStream()) {
+            photoStore.save(content, extension);
+        } catch (ApiException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw new ApiException("Unable to save image");
+        }
+    }
+
+    private void deleteUnusedPhoto(String filename) {
+        var transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(PROPAGATION_REQUIRES_NEW);
+        try {
+            // Files are deleted before the row removal commits, so an upload of the same photo waits on the row and then writes the file again
+            transaction.executeWithoutResult(status -> {
+                if(photoRepository.deletePhoto(filename)) {
+                    photoStore.delete(filename);
+                    THUMBNAIL_SIZES.forEach(size -> photoStore.delete(thumbnailName.apply(filename, size)));
+                }
+            });
+        } catch (Exception exception) {
+            log.error("Unable to delete unused photo {}: {}", filename, exception.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private BufferedImage cropSquare(BufferedImage image, String format) {
+        var side = Math.min(image.getWidth(), image.getHeight());
+        return draw(image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side), side, format);
+    }
+
+    private BufferedImage resize(BufferedImage image, int size) {
+        var resized = image;
+        while(resized.getWidth() / 2 >= size) {
+            resized = draw(resized, resized.getWidth() / 2, imageType(resized));
+        }
+        return resized.getWidth() > size ? draw(resized, size, imageType(resized)) : resized;
+    }
+
+    private BufferedImage draw(BufferedImage image, int size, String format) {
+        var target = new BufferedImage(size, size, "png".equals(format) ? TYPE_INT_ARGB : TYPE_INT_RGB);
+        var graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, size, size, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private String imageType(BufferedImage image) {
+        return image.getType() == TYPE_INT_ARGB ? "png" : "jpg";
+    }
+
+    private final Function<String, String> fileExtension = filename -> Optional.ofNullable(filename).filter(name -> name.contains("."))
+            .map(name -> name.substring(name.lastIndexOf(".") + 1).toLowerCase())
+            .filter(extension -> extension.matches("[a-z0-9]{1,5}"))
+            .map(extension -> "." + extension).orElse(".png");
+
+    private final Function<String, String> filenameOf = imageUrl -> imageUrl.split("\\?")[0].substring(imageUrl.split("\\?")[0].lastIndexOf("/") + 1);
+
+    private final Function<String, String> imageFormat = filename -> "png".equalsIgnoreCase(filename.substring(filename.lastIndexOf(".") + 1)) ? "png" : "jpg";
+
+    private final BiFunction<String, Integer, String> thumbnailName = (filename, size) -> filename.split("\\.")[0] + "-" + size + "." + imageFormat.apply(filename);
+}
@@ -1,84 +1,172 @@
 package userservice.service.implementation;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import userservice.cache.RecentWrites;
+import userservice.cache.TokenFilter;
+import userservice.cache.UserCache;
+import userservice.domain.BulkResult;
+import userservice.domain.ImportProgress;
+import userservice.domain.ImportResult;
+import userservice.domain.Profile;
+import userservice.domain.Registration;
+import userservice.domain.UserImport;
+import userservice.domain.UserSummary;
 import userservice.event.Event;
 import userservice.exception.ApiException;
 import userservice.model.Credential;
 import userservice.model.Device;
 import userservice.model.User;
 import userservice.repository.UserRepository;
+import userservice.security.PasswordHasher;
+import userservice.service.PhotoService;
 import userservice.service.UserService;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 import java.util.function.Function;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import static java.lang.Math.clamp;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Map.of;
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
+import static userservice.config.ReplicaRoutingDataSource.onReplica;
+import static userservice.constant.Constants.IDEMPOTENCY_KEY_MAX_LENGTH;
+import static userservice.constant.Constants.IMPORT_COLUMNS;
+import static userservice.utils.UserUtils.csvColumns;
+import static userservice.utils.UserUtils.requestHash;
+import static userservice.utils.UserUtils.qrCodeImage;
+import static userservice.utils.UserUtils.randomUUUID;
 import static org.apache.commons.lang.WordUtils.capitalizeFully;
-import static userservice.constant.Constants.PHOTO_DIRECTORY;
 import static userservice.enumeration.EventType.RESETPASSWORD;
+import static userservice.enumeration.EventType.USER_UPDATED;
 import static userservice.enumeration.EventType.USER_CREATED;
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder encoder;
+    private final PasswordHasher passwordHasher;
     private final ApplicationEventPublisher publisher;
+    private final UserCache userCache;
+    private final RecentWrites recentWrites;
+    private final TokenFilter tokenFilter;
+    private final PhotoService photoService;
+    private final ObjectMapper mapper;
+    private final TransactionTemplate transactionTemplate;
     @Value("${ui.app.url}")
     private String uiAppUrl;
+    @Value("${user.list.max-page-size:500}")
+    private int maxPageSize;
+    @Value("${user.list.fetch-size:500}")
+    private int fetchSize;
+    @Value("${user.search.max-page-size:50}")
+    private int maxSearchPageSize;
+    @Value("${user.batch.max-size:200}")
+    private int maxBatchSize;
+    @Value("${user.bulk.max-size:1000}")
+    private int maxBulkSize;
+    @Value("${user.import.chunk-size:500}")
+    private int importChunkSize;
 
     @Override
     public User getUserByEmail(String email) {
-        return userRepository.getUserByEmail(email);
+        return userCache.getUserByEmail(email, userRepository::getUserByEmail);
     }
 
     @Override
     public User getUserByUuid(String userUuid) {
-        return userRepository.getUserByUuid(userUuid);
+        return userCache.getUserByUuid(userUuid, uuid -> recentWrites.read(uuid, () -> userRepository.getUserByUuid(uuid)));
     }
 
     @Override
     public User updateUser(String userUuid, String firstName, String lastName, String email, String phone, String bio, String address) {
-        return userRepository.updateUser(userUuid, firstName, lastName, email, phone, bio, address);
+        var user = userRepository.updateUser(userUuid, firstName, lastName, email, phone, bio, address);
+        evictUser(userUuid);
+        return user;
     }
 
     @Override
-    public void createUser(String firstName, String lastName, String email, String username, String password) {
-        var token = userRepository.createUser(firstName, lastName, email, username, encoder.encode(password));
-        publisher.publishEvent(new Event(USER_CREATED, of("token", token, "name", capitalizeFully(firstName), "email", email)));
+    public void createUser(String idempotencyKey, String firstName, String lastName, String email, String username, String password) {
+        if(isNull(idempotencyKey)) {
+            var encodedPassword = encodePassword(email, username, password);
+            transactionTemplate.executeWithoutResult(status -> register(firstName, lastName, email, username, encodedPassword));
+            return;
+        }
+        if(idempotencyKey.isBlank() || idempotencyKey.length() > IDEMPOTENCY_KEY_MAX_LENGTH) {
+            throw new ApiException("Invalid idempotency key. Please try again.");
+        }
+        var hash = requestHash.apply(List.of(firstName, lastName, email.trim().toLowerCase(), username.trim().toLowerCase()));
+        // The key is claimed in its own statement so only the request that wins it pays for hashing the password
+        if(!userRepository.claimRegistration(idempotencyKey, hash)) {
+            replay(userRepository.getRegistration(idempotencyKey).orElseGet(() -> new Registration(hash, false, null)), hash);
+            return;
+        }
+        Registration registration;
+        try {
+            var encodedPassword = encodePassword(email, username, password);
+            registration = transactionTemplate.execute(status -> {
+                Registration outcome;
+                try {
+                    register(firstName, lastName, email, username, encodedPassword);
+                    outcome = new Registration(hash, true, null);
+                } catch (ApiException exception) {
+                    outcome = new Registration(hash, false, exception.getMessage());
+                }
+                userRepository.completeRegistration(idempotencyKey, outcome);
+                return outcome;
+            });
+        } catch (RuntimeException exception) {
+            userRepository.releaseRegistration(idempotencyKey);
+            throw exception;
+        }
+        replay(registration, hash);
     }
 
     @Override
+    @Transactional(noRollbackFor = ApiException.class)
     public void verifyAccount(String token) {
-        var accountToken = userRepository.getAccountToken(token);
-        if(!nonNull(accountToken)) {
-            throw new ApiException("Invalid link. Please try again.");
+        if(!tokenFilter.mightContain(token)) {
+            throw ApiException.INVALID_LINK;
         }
+        var accountToken = userRepository.verifyAccount(token).orElseThrow(() -> ApiException.INVALID_LINK);
         if(accountToken.isExpired()) {
-            userRepository.deleteAccountToken(token);
             throw new ApiException("Link has expired. Please created your account again.");
         }
-        userRepository.updateAccountSettings(accountToken.getUserId());
-        userRepository.deleteAccountToken(token);
+        userCache.invalidate(accountToken.getUserId());
+        publisher.publishEvent(new Event(USER_UPDATED, of("userId", accountToken.getUserId())));
     }
 
     @Override
     public User verifyPasswordToken(String token) {
-        var passwordToken = userRepository.getPasswordToken(token);
-        if(!nonNull(passwordToken)) {
-            throw new ApiException("Invalid link. Please try again.");
+        if(!tokenFilter.mightContain(token)) {
+            throw ApiException.INVALID_LINK;
         }
+        var passwordToken = userRepository.findPasswordToken(token).orElseThrow(() -> ApiException.INVALID_LINK);
         if(passwordToken.isExpired()) {
             userRepository.deletePasswordToken(token);
             throw new ApiException("Link has expired. Please reset your password again.");
@@ -88,36 +176,65 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public User enableMfa(String userUuid) {
-        return userRepository.enableMfa(userUuid);
+        var user = userRepository.enableMfa(userUuid);
+        evictUser(userUuid);
+        return user;
     }
 
     @Override
     public User disableMfa(String userUuid) {
-        return userRepository.disableMfa(userUuid);
+        var user = userRepository.disableMfa(userUuid);
+        evictUser(userUuid);
+        return user;
+    }
+
+    @Async("qrCodeExecutor")
+    @Override
+    public CompletableFuture<byte[]> getQrCodeImage(String userUuid) {
+        var image = userRepository.getQrCodeImage(userUuid).orElseGet(() -> {
+            var qrCodeSecret = userRepository.getQrCodeSecret(userUuid);
+            var generated = qrCodeImage.apply(qrCodeSecret);
+            userRepository.saveQrCodeImage(userUuid, qrCodeSecret, generated);
+            return generated;
+        });
+        return CompletableFuture.completedFuture(image);
     }
 
     @Override
     public User uploadPhoto(String userUuid, MultipartFile file) {
         var user = userRepository.getUserByUuid(userUuid);
-        var imageUrl = photoFunction.apply(user.getImageUrl(), file);
-        userRepository.updateImageUrl(userUuid, imageUrl);
+        var filename = transactionTemplate.execute(status -> {
+            var saved = photoService.savePhoto(file);
+            var previous = userRepository.updateImageUrl(userUuid, photoUrl.apply(saved));
+            if(nonNull(previous)) { photoService.releasePhoto(previous); }
+            return saved;
+        });
+        var imageUrl = photoUrl.apply(filename);
+        evictUser(userUuid);
+        photoService.createThumbnails(filename);
         user.setImageUrl(imageUrl + "?timestamp=" + System.currentTimeMillis());
         return user;
     }
 
     @Override
     public User toggleAccountExpired(String userUuid) {
-        return userRepository.toggleAccountExpired(userUuid);
+        var user = userRepository.toggleAccountExpired(userUuid);
+        evictUser(userUuid);
+        return user;
     }
 
     @Override
     public User toggleAccountLocked(String userUuid) {
-        return userRepository.toggleAccountLocked(userUuid);
+        var user = userRepository.toggleAccountLocked(userUuid);
+        evictUser(userUuid);
+        return user;
     }
 
     @Override
     public User toggleAccountEnabled(String userUuid) {
-        return userRepository.toggleAccountEnabled(userUuid);
+        var user = userRepository.toggleAccountEnabled(userUuid);
+        evictUser(userUuid);
+        return user;
     }
 
     @Override
@@ -130,31 +247,43 @@ public class UserServiceImpl implements UserService {
         if(!Objects.equals(confirmNewPassword, newPassword)) {
             throw new ApiException("Passwords don't match. Please try again.");
         }
-        if(!encoder.matches(currentPassword, userRepository.getPassword(userUuid))) {
+        if(!passwordHasher.matches(currentPassword, userRepository.getPassword(userUuid))) {
             throw new ApiException("Existing password is incorrect. Please try again.");
         }
-        userRepository.updatePassword(userUuid, encoder.encode(newPassword));
+        userRepository.updatePassword(userUuid, passwordHasher.encode(newPassword));
     }
 
     @Override
     public User updateRole(String userUuid, String role) {
-        return userRepository.updateRole(userUuid, role);
+        var user = userRepository.updateRole(userUuid, role);
+        evictUser(userUuid);
+        return user;
     }
 
     @Override
-    public void resetPassword(String email) {
-        var user = userRepository.getUserByEmail(email);
-        var passwordToken = userRepository.getPasswordToken(user.getUserId());
-        if(!nonNull(passwordToken)) {
-            var newToken = userRepository.createPasswordToken(user.getUserId());
-            publisher.publishEvent(new Event(RESETPASSWORD, of("token", newToken, "email", email, "name", capitalizeFully(user.getFirstName()))));
-        } else if (passwordToken.isExpired()) {
-            userRepository.deletePasswordToken(user.getUserId());
-            var newToken = userRepository.createPasswordToken(user.getUserId());
-            publisher.publishEvent(new Event(RESETPASSWORD, of("token", newToken, "email", email, "name", capitalizeFully(user.getFirstName()))));
-        } else {
-            publisher.publishEvent(new Event(RESETPASSWORD, of("token", passwordToken.getToken(), "email", email, "name", capitalizeFully(user.getFirstName()))));
+    @Transactional
+    public List<BulkResult> updateAccountFlags(List<String> userUuids, Boolean accountNonExpired, Boolean accountNonLocked, Boolean enabled) {
+        var targets = bulkTargets.apply(userUuids);
+        if(Stream.of(accountNonExpired, accountNonLocked, enabled).allMatch(Objects::isNull)) {
+            throw new ApiException("No account flags to update");
         }
+        return bulkResults(targets, userRepository.updateAccountFlags(targets, accountNonExpired, accountNonLocked, enabled));
+    }
+
+    @Override
+    @Transactional
+    public List<BulkResult> updateRoles(List<String> userUuids, String role) {
+        var targets = bulkTargets.apply(userUuids);
+        return bulkResults(targets, userRepository.updateRoles(targets, role));
+    }
+
+    @Override
+    @Transactional
+    public void resetPassword(String email) {
+        var reset = userRepository.resetPassword(email, randomUUUID.get());
+        var token = reset.passwordToken().getToken();
+        tokenFilter.add(token);
+        publisher.publishEvent(new Event(RESETPASSWORD, of("token", token, "email", email, "name", capitalizeFully(reset.firstName()))));
     }
 
     @Override
@@ -162,52 +291,254 @@ public class UserServiceImpl implements UserService {
         if(!Objects.equals(confirmPassword, password)) {
             throw new ApiException("Passwords don't match. Please try again.");
         }
-        var user = userRepository.getUserByUuid(userUuid);
-        var passwordToken = userRepository.getPasswordToken(token);
-        if(!Objects.equals(user.getUserId(), passwordToken.getUserId())) {
-            throw new ApiException("Invalid link. Please try again.");
+        if(!tokenFilter.mightContain(token)) {
+            throw ApiException.INVALID_LINK;
+        }
+        var passwordToken = userRepository.doResetPassword(userUuid, token, passwordHasher.encode(password)).orElseThrow(() -> ApiException.INVALID_LINK);
+        if(passwordToken.isExpired()) {
+            throw new ApiException("Link has expired. Please reset your password again.");
         }
-        userRepository.updatePassword(userUuid, encoder.encode(password));
-        userRepository.deletePasswordToken(user.getUserId());
     }
 
     @Override
-    public List<User> getUsers() {
-        return userRepository.getUsers();
+    public List<User> getUsers(Long cursor, int size) {
+        return onReplica(() -> userRepository.getUsers(cursor, clamp(size, 1, maxPageSize)));
+    }
+
+    @Override
+    public void streamUsers(OutputStream outputStream) {
+        try(var generator = mapper.getFactory().createGenerator(outputStream)) {
+            userRepository.streamUsers(fetchSize, user -> {
+                try {
+                    generator.writeObject(user);
+                    generator.writeRaw('\n');
+                } catch (IOException exception) {
+                    log.error(exception.getMessage());
+                    throw new ApiException("Unable to stream users");
+                }
+            });
+        } catch (IOException exception) {
+            log.error(exception.getMessage());
+            throw new ApiException("Unable to stream users");
+        }
+    }
+
+    @Override
+    public void importUsers(InputStream inputStream, OutputStream outputStream) {
+        try(var reader = new BufferedReader(new InputStreamReader(inputStream, UTF_8)); var generator = mapper.getFactory().createGenerator(outputStream)) {
+            var header = reader.readLine();
+            if(isNull(header) || !IMPORT_COLUMNS.equals(csvColumns.apply(header.replace("\uFEFF", "")).stream().map(column -> column.trim().toLowerCase()).toList())) {
+                writeLine(generator, new ImportResult(1, null, "Invalid header. Expected " + String.join(",", IMPORT_COLUMNS)));
+                writeLine(generator, new ImportProgress(0, 0, 0, true));
+                return;
+            }
+            var emails = new HashSet<String>();
+            var usernames = new HashSet<String>();
+            var chunk = new ArrayList<UserImport>(importChunkSize);
+            long lineNumber = 1, processed = 0, failed = 0;
+            String line;
+            while(nonNull(line = reader.readLine())) {
+                lineNumber++;
+                if(line.isBlank()) { continue; }
+                processed++;
+                try {
+                    chunk.add(userImport(lineNumber, csvColumns.apply(line), emails, usernames));
+                } catch (ApiException exception) {
+                    failed++;
+                    writeLine(generator, new ImportResult(lineNumber, null, exception.getMessage()));
+                }
+                if(chunk.size() == importChunkSize) {
+                    failed += importChunk(chunk, generator);
+                    chunk.clear();
+                    writeLine(generator, new ImportProgress(processed, processed - failed, failed, false));
+                    generator.flush();
+                }
+            }
+            if(!chunk.isEmpty()) { failed += importChunk(chunk, generator); }
+            writeLine(generator, new ImportProgress(processed, processed - failed, failed, true));
+        } catch (IOException exception) {
+            log.error(exception.getMessage());
+            throw new ApiException("Unable to import users");
+        }
+    }
+
+    @Override
+    public Map<String, User> getUsersByUuids(List<String> userUuids) {
+        var users = new LinkedHashMap<String, User>();
+        var missing = new ArrayList<String>();
+        batchUuids.apply(userUuids, "users").forEach(userUuid -> {
+            var user = userCache.getUserIfPresent(userUuid);
+            if(nonNull(user)) { users.put(userUuid, user); } else { missing.add(userUuid); }
+        });
+        if(!missing.isEmpty()) {
+            var generation = userCache.generation();
+            userRepository.getUsersByUuids(missing).forEach((userUuid, user) -> users.put(userUuid, userCache.cache(user, generation)));
+        }
+        return users;
+    }
+
+    @Override
+    public Map<String, User> getAssignees(List<String> ticketUuids) {
+        return userRepository.getAssignees(batchUuids.apply(ticketUuids, "tickets"));
+    }
+
+    @Override
+    public List<UserSummary> searchUsers(String query, int page, int size) {
+        var term = Objects.requireNonNullElse(query, "").trim();
+        if(term.length() < 2) {
+            throw new ApiException("Search term must be at least 2 characters");
+        }
+        return userRepository.searchUsers(term, Math.max(page, 0), clamp(size, 1, maxSearchPageSize));
     }
 
     @Override
     public User getAssignee(String ticketUuid) {
-        return userRepository.getAssignee(ticketUuid);
+        return onReplica(() -> userRepository.getAssignee(ticketUuid));
     }
 
     @Override
     public Credential getCredential(String userUuid) {
-        return userRepository.getCredential(userUuid);
+        return recentWrites.read(userUuid, () -> userRepository.getCredential(userUuid));
     }
 
     @Override
     public List<Device> getDevices(String userUuid) {
-        return userRepository.getDevices(userUuid);
+        return recentWrites.read(userUuid, () -> userRepository.getDevices(userUuid));
     }
 
-    private final Function<String, String> fileExtension = filename -> Optional.of(filename).filter(name -> name.contains("."))
-            .map(name -> "." + name.substring(filename.lastIndexOf(".") + 1)).orElse(".png");
+    @Override
+    public Profile getProfile(String userUuid) {
+        var user = userCache.getUserIfPresent(userUuid);
+        if(nonNull(user)) {
+            return new Profile(user, getDevices(userUuid));
+        }
+        var generation = userCache.generation();
+        var profile = userRepository.getProfile(userUuid);
+        return new Profile(userCache.cache(profile.user(), generation), profile.devices());
+    }
 
-    private final BiFunction<String, MultipartFile, String> photoFunction = (imageUrl, image) -> {
+    private String encodePassword(String email, String username, String password) {
+        if(userRepository.userExists(email, username)) {
+            throw new ApiException("Email/username already in use. Please try again.");
+        }
+        return passwordHasher.encode(password);
+    }
+
+    private void register(String firstName, String lastName, String email, String username, String encodedPassword) {
+        var token = userRepository.createUser(firstName, lastName, email, username, encodedPassword);
+        tokenFilter.add(token);
+        publisher.publishEvent(new Event(USER_CREATED, of("token", token, "name", capitalizeFully(firstName), "email", email)));
+    }
+
+    private UserImport userImport(long line, List<String> columns, Set<String> emails, Set<String> usernames) {
+        if(columns.size() != IMPORT_COLUMNS.size()) {
+            throw new ApiException("Expected " + IMPORT_COLUMNS.size() + " columns but found " + columns.size());
+        }
+        var firstName = columns.get(0).trim();
+        var lastName = columns.get(1).trim();
+        var email = columns.get(2).trim().toLowerCase();
+        var username = columns.get(3).trim().toLowerCase();
+        var password = columns.get(4);
+        if(Stream.of(firstName, lastName, email, username, password).anyMatch(String::isBlank)) {
+            throw new ApiException("First name, last name, email, username and password are required");
+        }
+        if(firstName.length() > 25 || lastName.length() > 25 || username.length() > 25 || email.length() > 40) {
+            throw new ApiException("Names and username are limited to 25 characters and email to 40");
+        }
+        if(!emailPattern.matcher(email).matches()) {
+            throw new ApiException("Invalid email address");
+        }
+        if(!emails.add(email) || !usernames.add(username)) {
+            throw new ApiException("Email/username appears more than once in the file");
+        }
+        return new UserImport(line, firstName, lastName, email, username, password, null);
+    }
+
+    private int importChunk(List<UserImport> chunk, JsonGenerator generator) throws IOException {
+        var failures = new ArrayList<ImportResult>();
         try {
-            var filename = imageUrl.split("/")[imageUrl.split("/").length - 1].split("\\.")[0] + fileExtension.apply(image.getOriginalFilename());
-            var existingImage = Paths.get(PHOTO_DIRECTORY + imageUrl.split("/")[imageUrl.split("/").length - 1]);
-            var fileStorageLocation = Paths.get(PHOTO_DIRECTORY).toAbsolutePath().normalize();
-            if(!Files.exists(fileStorageLocation)) { Files.createDirectories(fileStorageLocation); }
-            if(Files.exists(existingImage)) { Files.deleteIfExists(existingImage); }
-            Files.copy(image.getInputStream(), fileStorageLocation.resolve(filename), REPLACE_EXISTING);
-            return ServletUriComponentsBuilder
-                    .fromCurrentContextPath()
-                    .path("/user/image/" + filename).toUriString();
-        } catch (Exception exception) {
-            log.error(exception.getMessage());
-            throw new ApiException("Unable to save image");
+            var inUse = userRepository.getUsersInUse(chunk.stream().map(UserImport::email).toList(), chunk.stream().map(UserImport::username).toList());
+            var pending = new ArrayList<UserImport>();
+            chunk.forEach(user -> {
+                if(inUse.contains(user.email()) || inUse.contains(user.username())) {
+                    failures.add(new ImportResult(user.line(), user.email(), "Email/username already in use"));
+                } else { pending.add(user); }
+            });
+            if(!pending.isEmpty()) {
+                var passwords = passwordHasher.encodeAll(pending.stream().map(UserImport::password).toList());
+                var users = IntStream.range(0, pending.size()).mapToObj(index -> {
+                    var user = pending.get(index);
+                    return new UserImport(user.line(), user.firstName(), user.lastName(), user.email(), user.username(), passwords.get(index), randomUUUID.get());
+                }).toList();
+                var imported = transactionTemplate.execute(status -> {
+                    var lines = new HashSet<>(userRepository.importUsers(users));
+                    users.stream().filter(user -> lines.contains(user.line())).forEach(user ->
+                            publisher.publishEvent(new Event(USER_CREATED, of("token", user.token(), "name", capitalizeFully(user.firstName()), "email", user.email()))));
+                    return lines;
+                });
+                users.forEach(user -> {
+                    if(imported.contains(user.line())) {
+                        tokenFilter.add(user.token());
+                    } else { failures.add(new ImportResult(user.line(), user.email(), "Email/username already in use")); }
+                });
+            }
+        } catch (ApiException exception) {
+            failures.clear();
+            chunk.forEach(user -> failures.add(new ImportResult(user.line(), user.email(), exception.getMessage())));
+        }
+        failures.sort(Comparator.comparingLong(ImportResult::line));
+        for(var failure : failures) { writeLine(generator, failure); }
+        return failures.size();
+    }
+
+    private void writeLine(JsonGenerator generator, Object value) throws IOException {
+        generator.writeObject(value);
+        generator.writeRaw('\n');
+    }
+
+    private void replay(Registration registration, String requestHash) {
+        if(!Objects.equals(registration.requestHash(), requestHash)) {
+            throw new ApiException("Idempotency key was already used for a different registration.");
+        }
+        if(registration.pending()) {
+            throw new ApiException("Registration is still being processed. Please try again.");
+        }
+        if(!registration.succeeded()) {
+            throw new ApiException(registration.message());
         }
+    }
+
+    private List<BulkResult> bulkResults(List<String> userUuids, List<String> updatedUuids) {
+        var updated = new HashSet<>(updatedUuids);
+        updated.forEach(this::evictUser);
+        return userUuids.stream().map(userUuid -> updated.contains(userUuid)
+                ? new BulkResult(userUuid, true, "User updated successfully")
+                : new BulkResult(userUuid, false, "User not found")).toList();
+    }
+
+    private final Function<List<String>, List<String>> bulkTargets = userUuids -> {
+        var targets = Stream.ofNullable(userUuids).flatMap(List::stream).filter(Objects::nonNull).distinct().toList();
+        if(targets.isEmpty()) { throw new ApiException("No users to update"); }
+        if(targets.size() > maxBulkSize) { throw new ApiException("Too many users. Maximum is " + maxBulkSize + " per request"); }
+        return targets;
+    };
+
+    private final BiFunction<List<String>, String, List<String>> batchUuids = (uuids, noun) -> {
+        var distinct = Stream.ofNullable(uuids).flatMap(List::stream).filter(Objects::nonNull).distinct().toList();
+        if(distinct.isEmpty()) { throw new ApiException("No " + noun + " requested"); }
+        if(distinct.size() > maxBatchSize) { throw new ApiException("Too many " + noun + ". Maximum is " + maxBatchSize + " per request"); }
+        return distinct;
     };
+
+    private void evictUser(String userUuid) {
+        recentWrites.record(userUuid);
+        userCache.invalidate(userUuid);
+        publisher.publishEvent(new Event(USER_UPDATED, of("userUuid", userUuid)));
+    }
+
+    private final Pattern emailPattern = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    private final Function<String, String> photoUrl = filename -> ServletUriComponentsBuilder
+            .fromCurrentContextPath()
+            .path("/user/image/" + filename).toUriString();
 }
\ No newline at end of file
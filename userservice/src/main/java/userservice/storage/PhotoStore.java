@@ -0,0 +1,12 @@
+package userservice.storage;
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+public interface PhotoStore {
+    String filename(InputStream content, String extension);
+    String save(InputStream content, String extension);
+    void save(String filename, InputStream content);
+    boolean exists(String filename);
+    Resource load(String filename);
+    void delete(String filename);
+}
@@ -0,0 +1,127 @@
+package userservice.storage.implementation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import userservice.exception.ApiException;
+import userservice.storage.PhotoStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static userservice.constant.Constants.PHOTO_DIRECTORY;
+@Slf4j
+@Component
+public class LocalPhotoStore implements PhotoStore {
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("^[0-9a-f]{64}[.-].*");
+    private final Path root = Paths.get(PHOTO_DIRECTORY).toAbsolutePath().normalize();
+
+    @Override
+    public String filename(InputStream content, String extension) {
+        try (var input = new DigestInputStream(content, MessageDigest.getInstance("SHA-256"))) {
+            input.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(input.getMessageDigest().digest()) + extension;
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw new ApiException("Unable to save image");
+        }
+    }
+
+    @Override
+    public String save(InputStream content, String extension) {
+        Path temp = null;
+        try {
+            temp = createTempFile();
+            var digest = MessageDigest.getInstance("SHA-256");
+            try (var input = new DigestInputStream(content, digest)) { Files.copy(input, temp, REPLACE_EXISTING); }
+            var filename = HexFormat.of().formatHex(digest.digest()) + extension;
+            if(!exists(filename)) { moveIntoPlace(temp, filename); }
+            return filename;
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw new ApiException("Unable to save image");
+        } finally {
+            deleteTempFile(temp);
+        }
+    }
+
+    @Override
+    public void save(String filename, InputStream content) {
+        Path temp = null;
+        try {
+            temp = createTempFile();
+            Files.copy(content, temp, REPLACE_EXISTING);
+            moveIntoPlace(temp, filename);
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw new ApiException("Unable to save image");
+        } finally {
+            deleteTempFile(temp);
+        }
+    }
+
+    @Override
+    public boolean exists(String filename) {
+        return Files.isReadable(resolve(filename));
+    }
+
+    @Override
+    public Resource load(String filename) {
+        var photo = resolve(filename);
+        if(!Files.isReadable(photo)) {
+            throw new ApiException("Image not found");
+        }
+        return new FileSystemResource(photo);
+    }
+
+    @Override
+    public void delete(String filename) {
+        try {
+            Files.deleteIfExists(resolve(filename));
+        } catch (IOException exception) {
+            log.error(exception.getMessage());
+        }
+    }
+
+    private Path resolve(String filename) {
+        var path = (CONTENT_ADDRESSED.matcher(filename).matches()
+                ? root.resolve(filename.substring(0, 2)).resolve(filename.substring(2, 4)).resolve(filename)
+                : root.resolve(filename)).normalize();
+        if(!path.startsWith(root)) {
+            throw new ApiException("Image not found");
+        }
+        return path;
+    }
+
+    private Path createTempFile() throws IOException {
+        Files.createDirectories(root);
+        return Files.createTempFile(root, "upload-", ".tmp");
+    }
+
+    private void moveIntoPlace(Path temp, String filename) throws IOException {
+        try (var channel = FileChannel.open(temp, WRITE)) { channel.force(true); }
+        var target = resolve(filename);
+        Files.createDirectories(target.getParent());
+        Files.move(temp, target, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    private void deleteTempFile(Path temp) {
+        try {
+            if(temp != null) { Files.deleteIfExists(temp); }
+        } catch (IOException exception) {
+            log.error(exception.getMessage());
+        }
+    }
+}
@@ -4,21 +4,30 @@ import dev.samstevens.totp.exceptions.QrGenerationException;
 import dev.samstevens.totp.qr.QrData;
 import dev.samstevens.totp.qr.ZxingPngQrGenerator;
 import dev.samstevens.totp.secret.DefaultSecretGenerator;
+import com.google.common.hash.Hashing;
 import userservice.exception.ApiException;
+import userservice.model.Device;
+import userservice.model.User;
 
 
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
-import static dev.samstevens.totp.util.Utils.getDataUriForImage;
-
-import static org.apache.commons.lang3.RandomStringUtils.randomNumeric;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static userservice.constant.Constants.TASK_FLOWER_LLC;
 public class UserUtils {
     public static Supplier<String> randomUUUID = () -> UUID.randomUUID().toString();
-    public static Supplier<String> memberId = () -> randomNumeric(4) + "-" + randomNumeric(2) + "-" + randomNumeric(4);
+    public static Function<List<String>, String> requestHash = values -> Hashing.sha256().hashString(String.join("\n", values), UTF_8).toString();
+    // ETags are derived from what is serialised, so a stale cached body never goes out under a newer version
+    public static Function<User, String> userVersion = user -> requestHash.apply(List.of(Objects.toString(user.getUpdatedAt(), ""), Objects.toString(user.getRole(), "")));
+    public static BiFunction<User, List<Device>, String> profileVersion = (user, devices) -> requestHash.apply(Stream.concat(Stream.of(userVersion.apply(user)),
+            devices.stream().map(device -> device.getDeviceId() + ":" + device.getLoginCount() + ":" + device.getUpdatedAt())).toList());
     public static Function<String, QrData> qrDataFunction = qrCodeSecret -> new QrData.Builder()
             .issuer(TASK_FLOWER_LLC)
             .label(TASK_FLOWER_LLC)
@@ -28,16 +37,36 @@ public class UserUtils {
             .period(30)
             .build();
 
-    public static Function<String, String> qrCodeImageUri = qrCodeSecret -> {
+    public static Function<String, byte[]> qrCodeImage = qrCodeSecret -> {
         try {
-            var data = qrDataFunction.apply(qrCodeSecret);
-            var generator = new ZxingPngQrGenerator();
-            var imageData = generator.generate(data);
-            return getDataUriForImage(imageData, generator.getImageMimeType());
+            return new ZxingPngQrGenerator().generate(qrDataFunction.apply(qrCodeSecret));
         } catch (QrGenerationException exception) {
             throw new ApiException(exception.getMessage());
         }
     };
 
+    public static Function<String, List<String>> csvColumns = line -> {
+        var columns = new ArrayList<String>();
+        var column = new StringBuilder();
+        var quoted = false;
+        for(var index = 0; index < line.length(); index++) {
+            var character = line.charAt(index);
+            if(quoted && character == '"' && index + 1 < line.length() && line.charAt(index + 1) == '"') {
+                column.append(character);
+                index++;
+            } else if(character == '"') {
+                quoted = !quoted;
+            } else if(character == ',' && !quoted) {
+                columns.add(column.toString());
+                column.setLength(0);
+            } else {
+                column.append(character);
+            }
+        }
+        if(quoted) { throw new ApiException("Unterminated quoted value"); }
+        columns.add(column.toString());
+        return columns;
+    };
+
     public static Supplier<String> qrCodeSecret = () -> new DefaultSecretGenerator().generate();
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package io.getarrays.userservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import userservice.cache.RecentWrites;
+import userservice.cache.TokenFilter;
+import userservice.cache.UserCache;
+import userservice.domain.BulkResult;
+import userservice.event.Event;
+import userservice.model.User;
+import userservice.repository.UserRepository;
+import userservice.security.PasswordHasher;
+import userservice.service.PhotoService;
+import userservice.service.implementation.UserServiceImpl;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BulkUpdateTests {
+    private UserRepository userRepository;
+    private ApplicationEventPublisher publisher;
+    private UserCache userCache;
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        publisher = mock(ApplicationEventPublisher.class);
+        userCache = new UserCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        userService = new UserServiceImpl(userRepository, mock(PasswordHasher.class), publisher, userCache, new RecentWrites(Duration.ofSeconds(5), 100),
+                mock(TokenFilter.class), mock(PhotoService.class), new ObjectMapper(), mock(TransactionTemplate.class));
+        ReflectionTestUtils.setField(userService, "maxBulkSize", 3);
+    }
+
+    @Test
+    void returnsARowPerRequestedUser() {
+        when(userRepository.updateAccountFlags(List.of("a", "b", "c"), null, false, null)).thenReturn(List.of("c", "a"));
+        var results = userService.updateAccountFlags(Arrays.asList("a", "b", null, "a", "c"), null, false, null);
+        assertThat(results).containsExactly(
+                new BulkResult("a", true, "User updated successfully"),
+                new BulkResult("b", false, "User not found"),
+                new BulkResult("c", true, "User updated successfully"));
+    }
+
+    @Test
+    void evictsOnlyUpdatedUsers() {
+        userCache.getUserByUuid("a", this::load);
+        userCache.getUserByUuid("b", this::load);
+        when(userRepository.updateRoles(List.of("a", "b"), "ROLE_ADMIN")).thenReturn(List.of("a"));
+        userService.updateRoles(List.of("a", "b"), "ROLE_ADMIN");
+        assertThat(userCache.getUserIfPresent("a")).isNull();
+        assertThat(userCache.getUserIfPresent("b")).isNotNull();
+        verify(publisher, times(1)).publishEvent(any(Event.class));
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedRequests() {
+        assertThatThrownBy(() -> userService.updateRoles(Arrays.asList(null, null), "ROLE_USER")).hasMessage("No users to update");
+        assertThatThrownBy(() -> userService.updateRoles(null, "ROLE_USER")).hasMessage("No users to update");
+        var uuids = IntStream.range(0, 4).mapToObj(String::valueOf).toList();
+        assertThatThrownBy(() -> userService.updateRoles(uuids, "ROLE_USER")).hasMessage("Too many users. Maximum is 3 per request");
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void rejectsUpdatesWithoutFlags() {
+        assertThatThrownBy(() -> userService.updateAccountFlags(List.of("a"), null, null, null)).hasMessage("No account flags to update");
+        verify(userRepository, never()).updateAccountFlags(anyList(), any(), any(), any());
+    }
+
+    private User load(String userUuid) {
+        return User.builder().userId((long) userUuid.hashCode()).userUuid(userUuid).email(userUuid + "@getarrays.io").build();
+    }
+}
@@ -0,0 +1,59 @@
+package io.getarrays.userservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import userservice.domain.PartitionChanges;
+import userservice.repository.UserRepository;
+import userservice.scheduler.DevicePartitionJob;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DevicePartitionJobTests {
+    private UserRepository userRepository;
+    private SimpleMeterRegistry registry;
+    private DevicePartitionJob devicePartitionJob;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        registry = new SimpleMeterRegistry();
+        devicePartitionJob = new DevicePartitionJob(userRepository, registry);
+        ReflectionTestUtils.setField(devicePartitionJob, "monthsAhead", 3);
+        ReflectionTestUtils.setField(devicePartitionJob, "retentionMonths", 6);
+    }
+
+    @Test
+    void recordsPartitionChanges() {
+        when(userRepository.maintainDevicePartitions(3, 6)).thenReturn(new PartitionChanges(2, 1, 40, 5));
+        devicePartitionJob.maintain();
+        devicePartitionJob.maintain();
+        verify(userRepository, times(2)).maintainDevicePartitions(3, 6);
+        assertThat(registry.counter("devices.partitions.created").count()).isEqualTo(4);
+        assertThat(registry.counter("devices.partitions.dropped").count()).isEqualTo(2);
+        assertThat(registry.counter("devices.partition.default.rows").count()).isEqualTo(90);
+        assertThat(registry.timer("devices.partition.time").count()).isEqualTo(2);
+    }
+
+    @Test
+    void recordsNothingWhenPartitionsAreCurrent() {
+        when(userRepository.maintainDevicePartitions(3, 6)).thenReturn(new PartitionChanges(0, 0, 0, 0));
+        devicePartitionJob.maintain();
+        assertThat(registry.counter("devices.partitions.created").count()).isZero();
+        assertThat(registry.counter("devices.partition.default.rows").count()).isZero();
+    }
+
+    @Test
+    void keepsSchedulingWhenMaintenanceFails() {
+        when(userRepository.maintainDevicePartitions(3, 6)).thenThrow(new IllegalStateException("Lock timeout"));
+        assertThatNoException().isThrownBy(devicePartitionJob::maintain);
+        assertThat(registry.counter("devices.partitions.created").count()).isZero();
+        assertThat(registry.timer("devices.partition.time").count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,116 @@
+package io.getarrays.userservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import userservice.cache.RecentWrites;
+import userservice.cache.TokenFilter;
+import userservice.cache.UserCache;
+import userservice.domain.Registration;
+import userservice.exception.ApiException;
+import userservice.repository.UserRepository;
+import userservice.security.PasswordHasher;
+import userservice.service.PhotoService;
+import userservice.service.implementation.UserServiceImpl;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RegistrationTests {
+    private static final String KEY = "2b1f6c9e-7a4d-4e8b-b3c5-0d9f8e7a6b5c";
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+    private UserRepository userRepository;
+    private PasswordHasher passwordHasher;
+    private TokenFilter tokenFilter;
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        passwordHasher = mock(PasswordHasher.class);
+        tokenFilter = mock(TokenFilter.class);
+        userService = new UserServiceImpl(userRepository, passwordHasher, mock(ApplicationEventPublisher.class), new UserCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry()),
+                new RecentWrites(Duration.ofSeconds(5), 100), tokenFilter, mock(PhotoService.class), new ObjectMapper(), new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        // Mirrors the idempotency_keys table: a key is claimed once, completed with its outcome or released on failure
+        when(userRepository.claimRegistration(anyString(), anyString())).thenAnswer(invocation ->
+                registrations.putIfAbsent(invocation.getArgument(0), new Registration(invocation.getArgument(1), false, null)) == null);
+        when(userRepository.getRegistration(anyString())).thenAnswer(invocation -> Optional.ofNullable(registrations.get(invocation.<String>getArgument(0))));
+        doAnswer(invocation -> registrations.put(invocation.getArgument(0), invocation.getArgument(1))).when(userRepository).completeRegistration(anyString(), any());
+        doAnswer(invocation -> registrations.remove(invocation.<String>getArgument(0))).when(userRepository).releaseRegistration(anyString());
+        when(passwordHasher.encode(anyString())).thenReturn("encoded");
+        when(userRepository.createUser(anyString(), anyString(), anyString(), anyString(), anyString())).thenReturn("token");
+    }
+
+    @Test
+    void replaysCreateUnderTheSameKey() {
+        register("junior@getarrays.io");
+        register(" Junior@GetArrays.io ");
+        verify(userRepository, times(1)).createUser(anyString(), anyString(), anyString(), anyString(), anyString());
+        verify(passwordHasher, times(1)).encode(anyString());
+        verify(tokenFilter, times(1)).add("token");
+        assertThat(registrations.get(KEY).succeeded()).isTrue();
+    }
+
+    @Test
+    void rejectsTheSameKeyForADifferentRegistration() {
+        register("junior@getarrays.io");
+        assertThatThrownBy(() -> register("senior@getarrays.io")).hasMessage("Idempotency key was already used for a different registration.");
+        verify(userRepository, times(1)).createUser(anyString(), anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void rejectsReplayWhileTheFirstRequestIsPending() {
+        when(userRepository.createUser(anyString(), anyString(), anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            assertThatThrownBy(() -> register("junior@getarrays.io")).hasMessage("Registration is still being processed. Please try again.");
+            return "token";
+        });
+        register("junior@getarrays.io");
+        verify(userRepository, times(1)).createUser(anyString(), anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void replaysARecordedFailure() {
+        when(userRepository.createUser(anyString(), anyString(), anyString(), anyString(), anyString())).thenThrow(new ApiException("Email/username already in use. Please try again."));
+        assertThatThrownBy(() -> register("junior@getarrays.io")).hasMessage("Email/username already in use. Please try again.");
+        assertThatThrownBy(() -> register("junior@getarrays.io")).hasMessage("Email/username already in use. Please try again.");
+        verify(userRepository, times(1)).createUser(anyString(), anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void releasesTheKeyWhenRegistrationFails() {
+        when(userRepository.createUser(anyString(), anyString(), anyString(), anyString(), anyString())).thenThrow(new IllegalStateException("Connection reset")).thenReturn("token");
+        assertThatThrownBy(() -> register("junior@getarrays.io")).hasMessage("Connection reset");
+        assertThat(registrations).doesNotContainKey(KEY);
+        register("junior@getarrays.io");
+        assertThat(registrations.get(KEY).succeeded()).isTrue();
+    }
+
+    @Test
+    void doesNotHashPasswordsForReplays() {
+        registrations.put(KEY, new Registration("other", true, null));
+        assertThatThrownBy(() -> register("junior@getarrays.io")).isInstanceOf(ApiException.class);
+        verify(passwordHasher, never()).encode(anyString());
+        verify(userRepository, never()).completeRegistration(anyString(), any());
+    }
+
+    private void register(String email) {
+        userService.createUser(KEY, "Junior", "RT", email, "junior", "password");
+    }
+}
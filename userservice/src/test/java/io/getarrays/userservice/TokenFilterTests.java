@@ -0,0 +1,82 @@
+package io.getarrays.userservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import userservice.cache.TokenFilter;
+import userservice.repository.UserRepository;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class TokenFilterTests {
+    private UserRepository userRepository;
+    private SimpleMeterRegistry registry;
+    private TokenFilter tokenFilter;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        registry = new SimpleMeterRegistry();
+        tokenFilter = new TokenFilter(userRepository, 1000, 0.01, 100, registry);
+    }
+
+    @Test
+    void failsOpenUntilRebuiltAfterListening() {
+        streamTokens(List.of("stored"));
+        tokenFilter.rebuild();
+        assertThat(tokenFilter.mightContain("unknown")).isTrue();
+        tokenFilter.onListening();
+        assertThat(tokenFilter.mightContain("stored")).isTrue();
+        assertThat(tokenFilter.mightContain("unknown")).isFalse();
+        assertThat(registry.counter("token.filter.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsTokensAddedWhileRebuilding() {
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(1);
+            consumer.accept("stored");
+            tokenFilter.add("created");
+            return null;
+        }).when(userRepository).streamTokens(anyInt(), any());
+        tokenFilter.onListening();
+        assertThat(tokenFilter.mightContain("stored")).isTrue();
+        assertThat(tokenFilter.mightContain("created")).isTrue();
+    }
+
+    @Test
+    void keepsTokensAddedBeforeTheFirstRebuild() {
+        tokenFilter.add("created");
+        streamTokens(List.of("stored"));
+        tokenFilter.onListening();
+        assertThat(tokenFilter.mightContain("created")).isTrue();
+    }
+
+    @Test
+    void keepsFailingOpenWhenTheRebuildFails() {
+        doThrow(new IllegalStateException("Database unavailable")).when(userRepository).streamTokens(anyInt(), any());
+        tokenFilter.onListening();
+        assertThat(tokenFilter.mightContain("stored")).isTrue();
+    }
+
+    @Test
+    void rejectsNullTokens() {
+        assertThat(tokenFilter.mightContain(null)).isFalse();
+    }
+
+    private void streamTokens(List<String> tokens) {
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(1);
+            tokens.forEach(consumer);
+            return null;
+        }).when(userRepository).streamTokens(anyInt(), any());
+    }
+}
@@ -0,0 +1,80 @@
+package io.getarrays.userservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import userservice.cache.UserCache;
+import userservice.model.User;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserCacheTests {
+    private static final String USER_UUID = "8f7b3c2e-1d4a-4b6f-9e0c-5a2d7f1b3c4e";
+    private static final String EMAIL = "junior@getarrays.io";
+    private UserCache userCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        userCache = new UserCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void cachesLoadedUsers() {
+        userCache.getUserByUuid(USER_UUID, this::load);
+        userCache.getUserByUuid(USER_UUID, this::load);
+        userCache.getUserByEmail(EMAIL, email -> load(USER_UUID));
+        assertThat(loads).hasValue(2);
+        assertThat(userCache.getUserIfPresent(USER_UUID)).isNotNull();
+    }
+
+    @Test
+    void dropsUuidLoadInvalidatedWhileLoading() {
+        var user = userCache.getUserByUuid(USER_UUID, userUuid -> {
+            var loaded = load(userUuid);
+            userCache.invalidate(loaded.getUserId());
+            return loaded;
+        });
+        assertThat(user.getUserUuid()).isEqualTo(USER_UUID);
+        assertThat(userCache.getUserIfPresent(USER_UUID)).isNull();
+    }
+
+    @Test
+    void dropsEmailLoadInvalidatedWhileLoading() {
+        userCache.getUserByEmail(EMAIL, email -> {
+            var loaded = load(USER_UUID);
+            userCache.invalidate(USER_UUID);
+            return loaded;
+        });
+        assertThat(userCache.getUserIfPresent(USER_UUID)).isNull();
+        userCache.getUserByEmail(EMAIL, email -> load(USER_UUID));
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void dropsUsersReadBeforeAnInvalidation() {
+        var generation = userCache.generation();
+        var user = load(USER_UUID);
+        userCache.invalidate(USER_UUID);
+        assertThat(userCache.cache(user, generation)).isSameAs(user);
+        assertThat(userCache.getUserIfPresent(USER_UUID)).isNull();
+    }
+
+    @Test
+    void invalidatesByUserId() {
+        userCache.getUserByEmail(EMAIL, email -> load(USER_UUID));
+        userCache.invalidate(1L);
+        assertThat(userCache.getUserIfPresent(USER_UUID)).isNull();
+        userCache.getUserByEmail(EMAIL, email -> load(USER_UUID));
+        assertThat(loads).hasValue(2);
+    }
+
+    private User load(String userUuid) {
+        loads.incrementAndGet();
+        return User.builder().userId(1L).userUuid(userUuid).email(EMAIL).build();
+    }
+}
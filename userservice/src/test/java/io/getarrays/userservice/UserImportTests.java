@@ -0,0 +1,131 @@
+package io.getarrays.userservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import userservice.cache.RecentWrites;
+import userservice.cache.TokenFilter;
+import userservice.cache.UserCache;
+import userservice.domain.UserImport;
+import userservice.repository.UserRepository;
+import userservice.security.PasswordHasher;
+import userservice.service.PhotoService;
+import userservice.service.implementation.UserServiceImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserImportTests {
+    private static final String HEADER = "first_name,last_name,email,username,password";
+    private final ObjectMapper mapper = new ObjectMapper();
+    private UserRepository userRepository;
+    private TokenFilter tokenFilter;
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        tokenFilter = mock(TokenFilter.class);
+        var passwordHasher = mock(PasswordHasher.class);
+        userService = new UserServiceImpl(userRepository, passwordHasher, mock(ApplicationEventPublisher.class), new UserCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry()),
+                new RecentWrites(Duration.ofSeconds(5), 100), tokenFilter, mock(PhotoService.class), mapper, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(userService, "importChunkSize", 500);
+        when(passwordHasher.encodeAll(anyList())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0).stream().map(password -> "encoded").toList());
+        when(userRepository.getUsersInUse(anyCollection(), anyCollection())).thenReturn(Set.of());
+        when(userRepository.importUsers(anyList())).thenAnswer(invocation -> invocation.<List<UserImport>>getArgument(0).stream().map(UserImport::line).toList());
+    }
+
+    @Test
+    void reportsAnErrorRowPerRejectedLine() throws IOException {
+        when(userRepository.getUsersInUse(anyCollection(), anyCollection())).thenReturn(Set.of("taken@getarrays.io"));
+        var lines = importUsers(HEADER,
+                "Junior,RT,junior@getarrays.io,junior,password",
+                "Senior,RT,senior@getarrays.io,senior",
+                "",
+                "Staff,,staff@getarrays.io,staff,password",
+                "Principal,RT,principal@getarrays.io,principal-engineer-of-the-platform,password",
+                "Intern,RT,intern-getarrays.io,intern,password",
+                "Copy,RT,JUNIOR@getarrays.io,copy,password",
+                "Taken,RT,taken@getarrays.io,taken,password",
+                "\"Rt, Jr\",RT,quoted@getarrays.io,quoted,password");
+        assertThat(lines).hasSize(7);
+        assertError(lines.get(0), 3, null, "Expected 5 columns but found 4");
+        assertError(lines.get(1), 5, null, "First name, last name, email, username and password are required");
+        assertError(lines.get(2), 6, null, "Names and username are limited to 25 characters and email to 40");
+        assertError(lines.get(3), 7, null, "Invalid email address");
+        assertError(lines.get(4), 8, null, "Email/username appears more than once in the file");
+        assertError(lines.get(5), 9, "taken@getarrays.io", "Email/username already in use");
+        assertProgress(lines.get(6), 8, 2, 6, true);
+        verify(tokenFilter, times(2)).add(anyString());
+    }
+
+    @Test
+    void reportsUsersLostToAConcurrentInsert() throws IOException {
+        when(userRepository.importUsers(anyList())).thenReturn(List.of(2L));
+        var lines = importUsers(HEADER, "Junior,RT,junior@getarrays.io,junior,password", "Senior,RT,senior@getarrays.io,senior,password");
+        assertThat(lines).hasSize(2);
+        assertError(lines.get(0), 3, "senior@getarrays.io", "Email/username already in use");
+        assertProgress(lines.get(1), 2, 1, 1, true);
+    }
+
+    @Test
+    void reportsProgressAfterEachChunk() throws IOException {
+        ReflectionTestUtils.setField(userService, "importChunkSize", 2);
+        var lines = importUsers(HEADER, "A,RT,a@getarrays.io,a,password", "B,RT,b@getarrays.io,b,password", "C,RT,c@getarrays.io,c,password");
+        assertThat(lines).hasSize(2);
+        assertProgress(lines.get(0), 2, 2, 0, false);
+        assertProgress(lines.get(1), 3, 3, 0, true);
+    }
+
+    @Test
+    void rejectsAnInvalidHeader() throws IOException {
+        var lines = importUsers("email,username,password", "Junior,RT,junior@getarrays.io,junior,password");
+        assertThat(lines).hasSize(2);
+        assertError(lines.get(0), 1, null, "Invalid header. Expected " + HEADER);
+        assertProgress(lines.get(1), 0, 0, 0, true);
+        verify(userRepository, never()).importUsers(anyList());
+    }
+
+    private List<JsonNode> importUsers(String... lines) throws IOException {
+        var output = new ByteArrayOutputStream();
+        userService.importUsers(new ByteArrayInputStream(String.join("\n", lines).getBytes(UTF_8)), output);
+        var result = new ArrayList<JsonNode>();
+        for(var line : output.toString(UTF_8).split("\n")) { result.add(mapper.readTree(line)); }
+        return result;
+    }
+
+    private void assertError(JsonNode node, long line, String email, String message) {
+        assertThat(node.get("line").asLong()).isEqualTo(line);
+        assertThat(node.get("email").isNull() ? null : node.get("email").asText()).isEqualTo(email);
+        assertThat(node.get("message").asText()).isEqualTo(message);
+    }
+
+    private void assertProgress(JsonNode node, long processed, long imported, long failed, boolean completed) {
+        assertThat(node.get("processed").asLong()).isEqualTo(processed);
+        assertThat(node.get("imported").asLong()).isEqualTo(imported);
+        assertThat(node.get("failed").asLong()).isEqualTo(failed);
+        assertThat(node.get("completed").asBoolean()).isEqualTo(completed);
+    }
+}
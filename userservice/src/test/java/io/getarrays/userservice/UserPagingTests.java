@@ -0,0 +1,98 @@
+package io.getarrays.userservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import userservice.cache.RecentWrites;
+import userservice.cache.TokenFilter;
+import userservice.cache.UserCache;
+import userservice.model.User;
+import userservice.repository.UserRepository;
+import userservice.resource.UserResource;
+import userservice.security.PasswordHasher;
+import userservice.service.PhotoService;
+import userservice.service.implementation.UserServiceImpl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserPagingTests {
+    private final List<User> users = new CopyOnWriteArrayList<>();
+    private UserRepository userRepository;
+    private UserServiceImpl userService;
+    private UserResource userResource;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userService = new UserServiceImpl(userRepository, mock(PasswordHasher.class), mock(ApplicationEventPublisher.class), new UserCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry()),
+                new RecentWrites(Duration.ofSeconds(5), 100), mock(TokenFilter.class), mock(PhotoService.class), new ObjectMapper(), mock(TransactionTemplate.class));
+        ReflectionTestUtils.setField(userService, "maxPageSize", 500);
+        userResource = new UserResource(userService, mock(PhotoService.class));
+        LongStream.of(3, 5, 8, 13, 21, 34, 55).forEach(userId -> users.add(User.builder().userId(userId).userUuid("user-" + userId).build()));
+        // Mirrors SELECT_USERS_QUERY: WHERE u.user_id > :cursor ORDER BY u.user_id LIMIT :size
+        when(userRepository.getUsers(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long cursor = invocation.getArgument(0);
+            int size = invocation.getArgument(1);
+            return users.stream().filter(user -> user.getUserId() > cursor).limit(size).toList();
+        });
+    }
+
+    @Test
+    void walksEveryUserOnceByCursor() {
+        var seen = new ArrayList<Long>();
+        var cursor = 0L;
+        while(true) {
+            var page = getUsers(cursor, 3);
+            if(page.users().isEmpty()) {
+                assertThat(page.nextCursor()).isEqualTo(cursor);
+                break;
+            }
+            page.users().forEach(user -> seen.add(user.getUserId()));
+            cursor = page.nextCursor();
+        }
+        assertThat(seen).containsExactly(3L, 5L, 8L, 13L, 21L, 34L, 55L);
+    }
+
+    @Test
+    void doesNotSkipUsersWhenEarlierRowsAreDeleted() {
+        var first = getUsers(0L, 3);
+        assertThat(first.nextCursor()).isEqualTo(8L);
+        users.removeIf(user -> user.getUserId() == 5L);
+        var second = getUsers(first.nextCursor(), 3);
+        assertThat(second.users()).extracting(User::getUserId).containsExactly(13L, 21L, 34L);
+    }
+
+    @Test
+    void clampsPageSize() {
+        userService.getUsers(0L, 0);
+        verify(userRepository).getUsers(0L, 1);
+        userService.getUsers(8L, 10_000);
+        verify(userRepository).getUsers(8L, 500);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page getUsers(Long cursor, int size) {
+        var request = new MockHttpServletRequest("GET", "/user/list");
+        var data = userResource.getUsers(mock(Authentication.class), cursor, size, request).getBody().data();
+        return new Page((List<User>) data.get("users"), (Long) data.get("nextCursor"));
+    }
+
+    private record Page(List<User> users, Long nextCursor) {}
+}
@@ -0,0 +1,75 @@
+package userservice.benchmark;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import userservice.cache.RoleCache;
+import userservice.domain.Profile;
+import userservice.repository.UserRepository;
+import userservice.repository.implementation.RoleRepositoryImpl;
+import userservice.repository.implementation.UserRepositoryImpl;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares the old two-query /user/profile path with the single-statement getProfile.
+ * Run main() with the test classpath against a seeded database, e.g.
+ *   -Dbenchmark.url=jdbc:postgresql://localhost:5432/localdb -Dbenchmark.username=user -Dbenchmark.password=letmein
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProfileBenchmark {
+    private HikariDataSource dataSource;
+    private UserRepository userRepository;
+    private String userUuid;
+
+    @Setup
+    public void setup() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("benchmark.url", "jdbc:postgresql://localhost:5432/localdb"));
+        dataSource.setUsername(System.getProperty("benchmark.username", "user"));
+        dataSource.setPassword(System.getProperty("benchmark.password", "letmein"));
+        var jdbc = JdbcClient.create(dataSource);
+        userRepository = new UserRepositoryImpl(jdbc, new JdbcTemplate(dataSource), new ObjectMapper(), new RoleCache(new RoleRepositoryImpl(jdbc)));
+        userUuid = System.getProperty("benchmark.userUuid", jdbc.sql("SELECT d.user_id, u.user_uuid FROM device_summaries d JOIN users u ON u.user_id = d.user_id GROUP BY d.user_id, u.user_uuid ORDER BY COUNT(*) DESC LIMIT 1").query((resultSet, rowNum) -> resultSet.getString("user_uuid")).single());
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        blackhole.consume(userRepository.getUserByUuid(userUuid));
+        blackhole.consume(userRepository.getDevices(userUuid));
+    }
+
+    @Benchmark
+    public Profile composite() {
+        return userRepository.getProfile(userUuid);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProfileBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,100 @@
+package userservice.benchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.jdbc.core.SimplePropertyRowMapper;
+import userservice.domain.Role;
+import userservice.model.User;
+import userservice.repository.mapper.UserRowMapper;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.sql.Types.BIGINT;
+import static java.sql.Types.BOOLEAN;
+import static java.sql.Types.VARCHAR;
+import static userservice.query.UserQuery.SELECT_USERS_QUERY;
+
+/*
+ * Compares JdbcClient's reflective SimplePropertyRowMapper with the index based UserRowMapper over the
+ * columns of SELECT_USERS_QUERY, read from the query itself so the result set keeps its production shape.
+ * Rows come from an in-memory CachedRowSet, so no database is needed.
+ * Run main() with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+    private static final String[] COLUMNS = Arrays.stream(SELECT_USERS_QUERY.strip().substring("SELECT ".length(), SELECT_USERS_QUERY.strip().indexOf(" FROM ")).split(","))
+            .map(column -> column.strip().substring(column.strip().lastIndexOf('.') + 1)).toArray(String[]::new);
+    private static final Role ROLE = new Role(1L, "USER", "user:read,user:update");
+    @Param({"1", "10000"})
+    private int rows;
+    private CachedRowSet resultSet;
+
+    @Setup
+    public void setup() throws SQLException {
+        var metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(COLUMNS.length);
+        for(var column = 1; column <= COLUMNS.length; column++) {
+            var name = COLUMNS[column - 1];
+            metaData.setColumnName(column, name);
+            metaData.setColumnLabel(column, name);
+            metaData.setColumnType(column, name.equals("user_id") || name.equals("role_id") ? BIGINT : name.startsWith("account_") || name.equals("enabled") || name.equals("mfa") ? BOOLEAN : VARCHAR);
+        }
+        resultSet = RowSetProvider.newFactory().createCachedRowSet();
+        resultSet.setMetaData(metaData);
+        for(var row = 1; row <= rows; row++) {
+            resultSet.moveToInsertRow();
+            for(var column = 1; column <= COLUMNS.length; column++) {
+                switch (metaData.getColumnType(column)) {
+                    case BIGINT -> resultSet.updateLong(column, COLUMNS[column - 1].equals("role_id") ? ROLE.roleId() : row);
+                    case BOOLEAN -> resultSet.updateBoolean(column, row % 2 == 0);
+                    default -> resultSet.updateString(column, COLUMNS[column - 1] + "-" + row);
+                }
+            }
+            resultSet.insertRow();
+            resultSet.moveToCurrentRow();
+        }
+    }
+
+    @Benchmark
+    public List<User> reflective() throws SQLException {
+        return map(new SimplePropertyRowMapper<>(User.class));
+    }
+
+    @Benchmark
+    public List<User> indexed() throws SQLException {
+        return map(new UserRowMapper(roleId -> ROLE));
+    }
+
+    private List<User> map(RowMapper<User> rowMapper) throws SQLException {
+        resultSet.beforeFirst();
+        return new RowMapperResultSetExtractor<>(rowMapper).extractData(resultSet);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RowMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+}